@@ -1,8 +1,22 @@
 package org.amoeba.play.activity;
 
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
 import org.amoeba.activity.GameActivity;
 
+import org.amoeba.play.image.AndroidImageSource;
+import org.amoeba.play.image.BitmapImageDecoder;
+import org.amoeba.play.image.DiskImageCache;
+import org.amoeba.play.image.ImageLoader;
+import org.amoeba.play.image.MemoryImageCache;
 import org.amoeba.play.utility.PlayServicesEventHandler;
+import org.amoeba.play.utility.PlayServicesStatus;
 
 /**
  * An extension of GameActivity, providing built-in support and handling of Google Play Services.
@@ -11,9 +25,21 @@ public class PlayServicesGameActivity extends GameActivity implements PlayServic
 {
     private static final String TAG = "AmoebaEngine.PlayServicesGameActivity";
 
+    private static final String IMAGE_CACHE_DIRECTORY = "amoeba-play-images";
+    private static final long IMAGE_DISK_CACHE_SIZE = 4 * 1024 * 1024;
+    private static final int IMAGE_LOADER_THREADS = 2;
+
     private PlayServicesHelper helper;
     private int requestedClients = CLIENT_GAMES;
 
+    //Shared by every instance, so that the cache and worker threads survive Activity recreation
+    //(e.g. on rotation) instead of being rebuilt and leaked each time.
+    private static ImageLoader<Bitmap> imageLoader;
+
+    //Image loader callbacks are delivered through the executor of the most recently created instance,
+    //since the loader outlives any one instance.
+    private static volatile Executor imageCallbackExecutor;
+
     /**
      * Sets the clients that are requested for initialization and connection by end-user application space.
      * @param clients play services clients to be initialized for connection
@@ -28,6 +54,8 @@ public class PlayServicesGameActivity extends GameActivity implements PlayServic
     {
         super.onCreate(savedInstanceState);
 
+        imageCallbackExecutor = createImageCallbackExecutor();
+
         helper = new PlayServicesHelper(this);
         helper.setEventHandler(this);
         helper.initializeClients(requestedClients);
@@ -59,6 +87,109 @@ public class PlayServicesGameActivity extends GameActivity implements PlayServic
         helper.beginUserInitiatedSignIn();
     }
 
+    /**
+     * Gets the current sign in status, for rendering sign in progress and errors as an in-game overlay.
+     * Intended to be polled from the render loop, so that gameplay keeps running during sign in.
+     * @return current sign in status
+     */
+    protected PlayServicesStatus getPlayServicesStatus()
+    {
+        return helper.getStatus();
+    }
+
+    /**
+     * Clears a sign in error from the status, e.g. once the player has dismissed its overlay.
+     */
+    protected void clearPlayServicesError()
+    {
+        helper.clearError();
+    }
+
+    /**
+     * Makes sure the given clients are connected before they are used, e.g. before submitting a score
+     * or saving state, reconnecting any dropped client straight away. May be called from the render
+     * thread.
+     * @param  clients bit-mask containing clients about to be used
+     * @return         whether or not all of the clients are ready to use now
+     */
+    protected boolean ensurePlayServicesClientsConnected(final int clients)
+    {
+        return helper.ensureClientsConnected(clients);
+    }
+
+    /**
+     * Called on the UI thread when the sign in status changes. Does nothing by default; subclasses
+     * may override it to react to status changes, e.g. to pause input while signing in. Rendering of
+     * the overlay itself should poll getPlayServicesStatus() from the render loop.
+     * @param status new sign in status
+     */
+    @Override
+    public void onStatusChanged(final PlayServicesStatus status)
+    {
+
+    }
+
+    /**
+     * Gets the process-wide loader for player and inviter avatars, created on first use. Images are
+     * downsampled to the requested display size and cached in memory and on disk.
+     * @return image loader
+     */
+    protected ImageLoader<Bitmap> getImageLoader()
+    {
+        synchronized (PlayServicesGameActivity.class)
+        {
+            if (imageLoader == null)
+            {
+                imageLoader = createImageLoader();
+            }
+            return imageLoader;
+        }
+    }
+
+    /**
+     * Creates the executor on which image loader listeners are called back, whether or not the image
+     * was cached. Calls back on the UI thread by default; subclasses that use images from the render
+     * loop, e.g. to upload them as textures, should override this to run commands on the render thread,
+     * such as through GLSurfaceView.queueEvent.
+     * @return executor for image loader callbacks
+     */
+    protected Executor createImageCallbackExecutor()
+    {
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        return new Executor()
+        {
+            @Override
+            public void execute(final Runnable command)
+            {
+                mainHandler.post(command);
+            }
+        };
+    }
+
+    /**
+     * Creates the image loader, holding only the application context.
+     * @return image loader
+     */
+    private ImageLoader<Bitmap> createImageLoader()
+    {
+        //Give decoded images an eighth of the heap, as is typical for in-memory bitmap caches.
+        int memoryCacheSize = (int) (Runtime.getRuntime().maxMemory() / 8);
+        BitmapImageDecoder decoder = new BitmapImageDecoder();
+
+        return new ImageLoader<Bitmap>(new AndroidImageSource(getApplicationContext()), decoder,
+                new MemoryImageCache<Bitmap>(decoder, memoryCacheSize),
+                new DiskImageCache(new File(getCacheDir(), IMAGE_CACHE_DIRECTORY), IMAGE_DISK_CACHE_SIZE),
+                Executors.newFixedThreadPool(IMAGE_LOADER_THREADS),
+                new Executor()
+                {
+                    @Override
+                    public void execute(final Runnable command)
+                    {
+                        imageCallbackExecutor.execute(command);
+                    }
+                });
+    }
+
     /**
      * Gets the invitation ID associated with a sign in request.
      */
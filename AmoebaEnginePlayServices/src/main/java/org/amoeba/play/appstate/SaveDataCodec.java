@@ -0,0 +1,87 @@
+package org.amoeba.play.appstate;
+
+/**
+ * Converts save data to and from the compact binary payloads stored in App State slots. Each payload
+ * starts with a marker byte and the schema version, followed by the data written by the schema. The
+ * codec keeps its writer and reader between calls, so it should be held onto rather than recreated for
+ * each save, and must only be used from one thread at a time.
+ * @param <T> type of save data handled by this codec
+ */
+public class SaveDataCodec<T>
+{
+    private static final int FORMAT_MARKER = 0xAE;
+
+    private final SaveDataSchema<T> schema;
+    private final SaveDataWriter writer;
+    private final SaveDataReader reader;
+
+    /**
+     * Constructor.
+     * @param dataSchema schema describing the save data
+     */
+    public SaveDataCodec(final SaveDataSchema<T> dataSchema)
+    {
+        schema = dataSchema;
+        writer = new SaveDataWriter();
+        reader = new SaveDataReader();
+    }
+
+    /**
+     * Encodes save data into the codec's reusable writer. The returned writer's buffer is only valid
+     * until the next call to encode.
+     * @param  data save data to encode
+     * @return      writer holding the encoded payload
+     */
+    public SaveDataWriter encodeToBuffer(final T data)
+    {
+        writer.reset();
+        writer.writeByte(FORMAT_MARKER);
+        writer.writeVarInt(schema.getVersion());
+        schema.encode(data, writer);
+        return writer;
+    }
+
+    /**
+     * Encodes save data into a new payload array, e.g. for passing to AppStateClient.updateState.
+     * @param  data save data to encode
+     * @return      encoded payload
+     */
+    public byte[] encode(final T data)
+    {
+        return encodeToBuffer(data).toByteArray();
+    }
+
+    /**
+     * Decodes save data from a payload.
+     * @param  payload encoded payload
+     * @return         save data read
+     */
+    public T decode(final byte[] payload)
+    {
+        return decode(payload, 0, payload.length);
+    }
+
+    /**
+     * Decodes save data from a region of a payload.
+     * @param  payload encoded payload
+     * @param  offset  index of the first byte of the payload
+     * @param  length  length of the payload in bytes
+     * @return         save data read
+     */
+    public T decode(final byte[] payload, final int offset, final int length)
+    {
+        reader.reset(payload, offset, length);
+        if (reader.remaining() == 0 || reader.readByte() != FORMAT_MARKER)
+        {
+            throw new SaveDataFormatException("Payload is not binary save data.");
+        }
+
+        int version = reader.readVarInt();
+        if (version < 0 || version > schema.getVersion())
+        {
+            throw new SaveDataFormatException("Unsupported save data version " + version + ".");
+        }
+
+        return schema.decode(version, reader);
+    }
+}
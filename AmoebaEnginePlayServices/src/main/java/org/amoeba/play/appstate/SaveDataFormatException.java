@@ -0,0 +1,18 @@
+package org.amoeba.play.appstate;
+
+/**
+ * Thrown when a save data payload is truncated, corrupt, or written with a schema that cannot be read.
+ */
+public class SaveDataFormatException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     * @param message description of the problem with the payload
+     */
+    public SaveDataFormatException(final String message)
+    {
+        super(message);
+    }
+}
@@ -0,0 +1,397 @@
+package org.amoeba.play.appstate;
+
+/**
+ * Streaming binary decoder for payloads produced by SaveDataWriter. A reader wraps a region of an
+ * existing byte array without copying it, and may be reset onto a new payload to avoid reallocating.
+ */
+public class SaveDataReader
+{
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private char[] charBuffer;
+
+    /**
+     * Default constructor. The reader must be reset onto a payload before use.
+     */
+    public SaveDataReader()
+    {
+        buffer = new byte[0];
+        position = 0;
+        limit = 0;
+        charBuffer = new char[64];
+    }
+
+    /**
+     * Points this reader at the whole of the given payload.
+     * @param data payload to read
+     */
+    public void reset(final byte[] data)
+    {
+        reset(data, 0, data.length);
+    }
+
+    /**
+     * Points this reader at a region of the given payload.
+     * @param data   payload to read
+     * @param offset index of the first byte to read
+     * @param length number of bytes available to read
+     */
+    public void reset(final byte[] data, final int offset, final int length)
+    {
+        if (offset < 0 || length < 0 || offset + length > data.length)
+        {
+            throw new IndexOutOfBoundsException("Invalid region " + offset + "+" + length
+                    + " of " + data.length + " bytes.");
+        }
+
+        buffer = data;
+        position = offset;
+        limit = offset + length;
+    }
+
+    /**
+     * Returns the number of bytes left to read.
+     * @return number of unread bytes
+     */
+    public int remaining()
+    {
+        return limit - position;
+    }
+
+    /**
+     * Reads a single raw byte.
+     * @return byte read, as an unsigned value
+     */
+    public int readByte()
+    {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * Reads a boolean written as a single byte.
+     * @return boolean read
+     */
+    public boolean readBoolean()
+    {
+        return readByte() != 0;
+    }
+
+    /**
+     * Reads an unsigned varint.
+     * @return value read
+     */
+    public int readVarInt()
+    {
+        int result = 0;
+        for (int shift = 0; shift < 28; shift += 7)
+        {
+            int b = readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return result;
+            }
+        }
+
+        //The fifth byte only has room for the top four bits; anything more is corrupt or overlong.
+        int b = readByte();
+        if (b > 0x0F)
+        {
+            throw new SaveDataFormatException("Malformed varint.");
+        }
+        return result | (b << 28);
+    }
+
+    /**
+     * Reads an unsigned varint of up to 64 bits.
+     * @return value read
+     */
+    public long readVarLong()
+    {
+        long result = 0;
+        for (int shift = 0; shift < 63; shift += 7)
+        {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return result;
+            }
+        }
+
+        //The tenth byte only has room for the top bit; anything more is corrupt or overlong.
+        int b = readByte();
+        if (b > 0x01)
+        {
+            throw new SaveDataFormatException("Malformed varint.");
+        }
+        return result | ((long) b << 63);
+    }
+
+    /**
+     * Reads a zig-zag encoded signed integer.
+     * @return value read
+     */
+    public int readInt()
+    {
+        int raw = readVarInt();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    /**
+     * Reads a zig-zag encoded signed long.
+     * @return value read
+     */
+    public long readLong()
+    {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    /**
+     * Reads a float written as four little-endian bytes.
+     * @return value read
+     */
+    public float readFloat()
+    {
+        require(4);
+        return Float.intBitsToFloat(readFixed32());
+    }
+
+    /**
+     * Reads a double written as eight little-endian bytes.
+     * @return value read
+     */
+    public double readDouble()
+    {
+        require(8);
+        return Double.longBitsToDouble(readFixed64());
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     * @return string read, or null if a null string was written
+     */
+    public String readString()
+    {
+        int encodedLength = readLength();
+        if (encodedLength == 0)
+        {
+            return readBoolean() ? "" : null;
+        }
+
+        require(encodedLength);
+        if (charBuffer.length < encodedLength)
+        {
+            charBuffer = new char[Math.max(encodedLength, charBuffer.length * 2)];
+        }
+
+        int end = position + encodedLength;
+        int count = 0;
+        while (position < end)
+        {
+            int b = buffer[position++] & 0xFF;
+            if (b < 0x80)
+            {
+                charBuffer[count++] = (char) b;
+            }
+            else if ((b & 0xE0) == 0xC0)
+            {
+                requireWithin(end, 1);
+                charBuffer[count++] = (char) (((b & 0x1F) << 6) | (buffer[position++] & 0x3F));
+            }
+            else if ((b & 0xF0) == 0xE0)
+            {
+                requireWithin(end, 2);
+                charBuffer[count++] = (char) (((b & 0x0F) << 12) | ((buffer[position++] & 0x3F) << 6)
+                        | (buffer[position++] & 0x3F));
+            }
+            else if ((b & 0xF8) == 0xF0)
+            {
+                requireWithin(end, 3);
+                int codePoint = ((b & 0x07) << 18) | ((buffer[position++] & 0x3F) << 12)
+                        | ((buffer[position++] & 0x3F) << 6) | (buffer[position++] & 0x3F);
+                codePoint -= 0x10000;
+                charBuffer[count++] = (char) (0xD800 + (codePoint >>> 10));
+                charBuffer[count++] = (char) (0xDC00 + (codePoint & 0x3FF));
+            }
+            else
+            {
+                throw new SaveDataFormatException("Malformed UTF-8 string.");
+            }
+        }
+        return new String(charBuffer, 0, count);
+    }
+
+    /**
+     * Reads a length-prefixed block of raw bytes.
+     * @return bytes read
+     */
+    public byte[] readBytes()
+    {
+        int length = readLength();
+        require(length);
+        byte[] values = new byte[length];
+        System.arraycopy(buffer, position, values, 0, length);
+        position += length;
+        return values;
+    }
+
+    /**
+     * Reads a length-prefixed array of zig-zag varint integers.
+     * @return integers read
+     */
+    public int[] readIntArray()
+    {
+        int[] values = new int[readLength()];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = readInt();
+        }
+        return values;
+    }
+
+    /**
+     * Reads a length-prefixed array of zig-zag varint longs.
+     * @return longs read
+     */
+    public long[] readLongArray()
+    {
+        long[] values = new long[readLength()];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = readLong();
+        }
+        return values;
+    }
+
+    /**
+     * Reads a length-prefixed array of fixed-width floats.
+     * @return floats read
+     */
+    public float[] readFloatArray()
+    {
+        int length = readLength();
+        require(length * 4);
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++)
+        {
+            values[i] = Float.intBitsToFloat(readFixed32());
+        }
+        return values;
+    }
+
+    /**
+     * Reads a length-prefixed array of fixed-width doubles.
+     * @return doubles read
+     */
+    public double[] readDoubleArray()
+    {
+        int length = readLength();
+        require(length * 8);
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++)
+        {
+            values[i] = Double.longBitsToDouble(readFixed64());
+        }
+        return values;
+    }
+
+    /**
+     * Reads a length-prefixed array of booleans packed eight to a byte.
+     * @return booleans read
+     */
+    public boolean[] readBooleanArray()
+    {
+        //Booleans are packed eight to a byte, so the length may exceed the remaining bytes.
+        int length = readVarInt();
+        if (length < 0 || (length >>> 3) + ((length & 7) != 0 ? 1 : 0) > remaining())
+        {
+            throw new SaveDataFormatException("Invalid length " + length + ".");
+        }
+
+        boolean[] values = new boolean[length];
+        int packed = 0;
+        for (int i = 0; i < length; i++)
+        {
+            if ((i & 7) == 0)
+            {
+                packed = buffer[position++];
+            }
+            values[i] = (packed & (1 << (i & 7))) != 0;
+        }
+        return values;
+    }
+
+    /**
+     * Skips over the given number of bytes, e.g. trailing fields written by a newer schema version.
+     * @param count number of bytes to skip
+     */
+    public void skip(final int count)
+    {
+        require(count);
+        position += count;
+    }
+
+    /**
+     * Reads a length prefix, rejecting lengths that could not possibly fit in the remaining payload.
+     * @return length read
+     */
+    private int readLength()
+    {
+        int length = readVarInt();
+        if (length < 0 || length > remaining())
+        {
+            throw new SaveDataFormatException("Invalid length " + length + ".");
+        }
+        return length;
+    }
+
+    /**
+     * Reads four little-endian bytes. Availability must already have been checked.
+     * @return bits read
+     */
+    private int readFixed32()
+    {
+        return (buffer[position++] & 0xFF) | ((buffer[position++] & 0xFF) << 8)
+                | ((buffer[position++] & 0xFF) << 16) | ((buffer[position++] & 0xFF) << 24);
+    }
+
+    /**
+     * Reads eight little-endian bytes. Availability must already have been checked.
+     * @return bits read
+     */
+    private long readFixed64()
+    {
+        long low = readFixed32() & 0xFFFFFFFFL;
+        long high = readFixed32() & 0xFFFFFFFFL;
+        return (high << 32) | low;
+    }
+
+    /**
+     * Ensures that the given number of bytes remain in the payload.
+     * @param count number of bytes about to be read
+     */
+    private void require(final int count)
+    {
+        if (count > limit - position)
+        {
+            throw new SaveDataFormatException("Unexpected end of save data.");
+        }
+    }
+
+    /**
+     * Ensures that the given number of bytes remain before the given end index.
+     * @param end   index that reading must not pass
+     * @param count number of bytes about to be read
+     */
+    private void requireWithin(final int end, final int count)
+    {
+        if (count > end - position)
+        {
+            throw new SaveDataFormatException("Malformed UTF-8 string.");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.amoeba.play.appstate;
+
+/**
+ * Describes how a save data type is written to and read from a binary payload. Each schema carries a
+ * version number which is stored with every payload, so that data saved by an older build of the game
+ * can still be read (and migrated) after the schema changes.
+ * @param <T> type of save data described by this schema
+ */
+public interface SaveDataSchema<T>
+{
+    /**
+     * Returns the version written with new payloads. Should be incremented whenever encode changes.
+     * @return current schema version
+     */
+    public int getVersion();
+
+    /**
+     * Writes the given save data.
+     * @param data   save data to write
+     * @param writer writer to write to
+     */
+    public void encode(T data, SaveDataWriter writer);
+
+    /**
+     * Reads save data written with the given schema version.
+     * @param  version version the payload was written with, never newer than getVersion()
+     * @param  reader  reader positioned at the start of the save data
+     * @return         save data read
+     */
+    public T decode(int version, SaveDataReader reader);
+}
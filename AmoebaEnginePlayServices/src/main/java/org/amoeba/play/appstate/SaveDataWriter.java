@@ -0,0 +1,379 @@
+package org.amoeba.play.appstate;
+
+import java.util.Arrays;
+
+/**
+ * Streaming binary encoder for save data payloads. Integers are varint-packed (signed values are zig-zag
+ * encoded first), and primitive arrays are written straight from the array without boxing. The backing
+ * buffer grows as needed and is kept between payloads, so a single writer should be reset and reused
+ * rather than recreated for every save.
+ */
+public class SaveDataWriter
+{
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private byte[] buffer;
+    private int position;
+
+    /**
+     * Default constructor.
+     */
+    public SaveDataWriter()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor given an initial buffer capacity.
+     * @param initialCapacity initial size of the backing buffer, in bytes
+     */
+    public SaveDataWriter(final int initialCapacity)
+    {
+        buffer = new byte[Math.max(initialCapacity, 16)];
+        position = 0;
+    }
+
+    /**
+     * Discards any written data, keeping the backing buffer for reuse.
+     */
+    public void reset()
+    {
+        position = 0;
+    }
+
+    /**
+     * Returns the number of bytes written since the last reset.
+     * @return number of bytes written
+     */
+    public int size()
+    {
+        return position;
+    }
+
+    /**
+     * Returns the backing buffer. Only the first size() bytes are valid, and the buffer may be replaced
+     * by a later write.
+     * @return backing buffer
+     */
+    public byte[] getBuffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * Copies the written bytes into a new array of exactly the written size.
+     * @return written bytes
+     */
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Writes a single raw byte.
+     * @param value byte to write
+     */
+    public void writeByte(final int value)
+    {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Writes a boolean as a single byte.
+     * @param value boolean to write
+     */
+    public void writeBoolean(final boolean value)
+    {
+        writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Writes an unsigned varint. Negative values are legal but always take five bytes; prefer writeInt
+     * for values that may be negative.
+     * @param value value to write
+     */
+    public void writeVarInt(final int value)
+    {
+        ensureCapacity(5);
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0)
+        {
+            buffer[position++] = (byte) ((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        buffer[position++] = (byte) remaining;
+    }
+
+    /**
+     * Writes an unsigned varint of up to 64 bits.
+     * @param value value to write
+     */
+    public void writeVarLong(final long value)
+    {
+        ensureCapacity(10);
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0)
+        {
+            buffer[position++] = (byte) ((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        buffer[position++] = (byte) remaining;
+    }
+
+    /**
+     * Writes a signed integer, zig-zag encoded so that small negative values stay small.
+     * @param value value to write
+     */
+    public void writeInt(final int value)
+    {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes a signed long, zig-zag encoded so that small negative values stay small.
+     * @param value value to write
+     */
+    public void writeLong(final long value)
+    {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes a float as four little-endian bytes.
+     * @param value value to write
+     */
+    public void writeFloat(final float value)
+    {
+        ensureCapacity(4);
+        writeFixed32(Float.floatToIntBits(value));
+    }
+
+    /**
+     * Writes a double as eight little-endian bytes.
+     * @param value value to write
+     */
+    public void writeDouble(final double value)
+    {
+        ensureCapacity(8);
+        writeFixed64(Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string. A null string is written as a zero length followed by a
+     * false presence flag, so that it round-trips distinctly from the empty string.
+     * @param value string to write, may be null
+     */
+    public void writeString(final String value)
+    {
+        if (value == null)
+        {
+            writeVarInt(0);
+            writeBoolean(false);
+            return;
+        }
+
+        int length = value.length();
+        int encodedLength = utf8Length(value);
+        writeVarInt(encodedLength);
+        if (encodedLength == 0)
+        {
+            writeBoolean(true);
+            return;
+        }
+
+        ensureCapacity(encodedLength);
+        for (int i = 0; i < length; i++)
+        {
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                buffer[position++] = (byte) c;
+            }
+            else if (c < 0x800)
+            {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            }
+            else
+            {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Writes a length-prefixed block of raw bytes.
+     * @param values bytes to write
+     */
+    public void writeBytes(final byte[] values)
+    {
+        writeVarInt(values.length);
+        ensureCapacity(values.length);
+        System.arraycopy(values, 0, buffer, position, values.length);
+        position += values.length;
+    }
+
+    /**
+     * Writes a length-prefixed array of zig-zag varint integers.
+     * @param values integers to write
+     */
+    public void writeIntArray(final int[] values)
+    {
+        writeVarInt(values.length);
+        for (int i = 0; i < values.length; i++)
+        {
+            writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Writes a length-prefixed array of zig-zag varint longs.
+     * @param values longs to write
+     */
+    public void writeLongArray(final long[] values)
+    {
+        writeVarInt(values.length);
+        for (int i = 0; i < values.length; i++)
+        {
+            writeLong(values[i]);
+        }
+    }
+
+    /**
+     * Writes a length-prefixed array of fixed-width floats.
+     * @param values floats to write
+     */
+    public void writeFloatArray(final float[] values)
+    {
+        writeVarInt(values.length);
+        ensureCapacity(values.length * 4);
+        for (int i = 0; i < values.length; i++)
+        {
+            writeFixed32(Float.floatToIntBits(values[i]));
+        }
+    }
+
+    /**
+     * Writes a length-prefixed array of fixed-width doubles.
+     * @param values doubles to write
+     */
+    public void writeDoubleArray(final double[] values)
+    {
+        writeVarInt(values.length);
+        ensureCapacity(values.length * 8);
+        for (int i = 0; i < values.length; i++)
+        {
+            writeFixed64(Double.doubleToLongBits(values[i]));
+        }
+    }
+
+    /**
+     * Writes a length-prefixed array of booleans, packed eight to a byte.
+     * @param values booleans to write
+     */
+    public void writeBooleanArray(final boolean[] values)
+    {
+        writeVarInt(values.length);
+        ensureCapacity((values.length + 7) / 8);
+        int packed = 0;
+        for (int i = 0; i < values.length; i++)
+        {
+            if (values[i])
+            {
+                packed |= 1 << (i & 7);
+            }
+
+            if ((i & 7) == 7)
+            {
+                buffer[position++] = (byte) packed;
+                packed = 0;
+            }
+        }
+
+        if ((values.length & 7) != 0)
+        {
+            buffer[position++] = (byte) packed;
+        }
+    }
+
+    /**
+     * Writes four little-endian bytes. Capacity must already have been ensured.
+     * @param bits bits to write
+     */
+    private void writeFixed32(final int bits)
+    {
+        buffer[position++] = (byte) bits;
+        buffer[position++] = (byte) (bits >> 8);
+        buffer[position++] = (byte) (bits >> 16);
+        buffer[position++] = (byte) (bits >> 24);
+    }
+
+    /**
+     * Writes eight little-endian bytes. Capacity must already have been ensured.
+     * @param bits bits to write
+     */
+    private void writeFixed64(final long bits)
+    {
+        writeFixed32((int) bits);
+        writeFixed32((int) (bits >>> 32));
+    }
+
+    /**
+     * Determines the number of bytes needed to encode a string as UTF-8.
+     * @param  value string to measure
+     * @return       encoded length in bytes
+     */
+    private static int utf8Length(final String value)
+    {
+        int length = value.length();
+        int encodedLength = 0;
+        for (int i = 0; i < length; i++)
+        {
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                encodedLength += 1;
+            }
+            else if (c < 0x800)
+            {
+                encodedLength += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                encodedLength += 4;
+                i++;
+            }
+            else
+            {
+                encodedLength += 3;
+            }
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Grows the backing buffer, if necessary, so that the given number of bytes can be written.
+     * @param additional number of bytes about to be written
+     */
+    private void ensureCapacity(final int additional)
+    {
+        int required = position + additional;
+        if (required > buffer.length)
+        {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package org.amoeba.play.image;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.common.images.ImageManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads images over HTTP(S), as with Plus profile images, through the Play Services ImageManager, as
+ * with the content URIs of Games player and inviter icons, or otherwise through the ContentResolver.
+ * Every load is bounded by a timeout, so that a stalled fetch cannot hold a loader thread forever.
+ */
+public class AndroidImageSource implements ImageSource
+{
+    private static final int BUFFER_SIZE = 8192;
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private static final int READ_TIMEOUT_MS = 15000;
+
+    //Authority prefix of the content URIs served by Play Services, which must go through ImageManager.
+    private static final String PLAY_SERVICES_AUTHORITY = "com.google.android.gms";
+
+    private ContentResolver contentResolver;
+    private ImageManager imageManager;
+    private Handler mainHandler;
+
+    //ImageManager only holds its listeners weakly, so keep them alive until their image arrives.
+    private final Set<ImageManager.OnImageLoadedListener> pendingListeners;
+
+    /**
+     * Constructor.
+     * @param context context used to resolve content URIs; its application context is kept
+     */
+    public AndroidImageSource(final Context context)
+    {
+        Context applicationContext = context.getApplicationContext();
+        contentResolver = applicationContext.getContentResolver();
+        imageManager = ImageManager.create(applicationContext);
+        mainHandler = new Handler(Looper.getMainLooper());
+        pendingListeners = Collections.synchronizedSet(new HashSet<ImageManager.OnImageLoadedListener>());
+    }
+
+    @Override
+    public byte[] load(final String uri) throws IOException
+    {
+        Uri parsedUri = Uri.parse(uri);
+        String scheme = parsedUri.getScheme();
+        String authority = parsedUri.getAuthority();
+
+        if ("http".equals(scheme) || "https".equals(scheme))
+        {
+            return loadFromNetwork(uri);
+        }
+        else if (ContentResolver.SCHEME_CONTENT.equals(scheme) && authority != null
+                && authority.startsWith(PLAY_SERVICES_AUTHORITY))
+        {
+            return loadFromImageManager(parsedUri);
+        }
+
+        InputStream input = contentResolver.openInputStream(parsedUri);
+        if (input == null)
+        {
+            throw new IOException("Unable to open " + uri);
+        }
+        return readFully(input);
+    }
+
+    /**
+     * Loads an image over HTTP(S).
+     * @param  uri         URL of the image
+     * @return             encoded image data
+     * @throws IOException if the image could not be loaded in time
+     */
+    private byte[] loadFromNetwork(final String uri) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL(uri).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        try
+        {
+            int responseCode = connection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK)
+            {
+                throw new IOException("Unable to load " + uri + ": HTTP " + responseCode);
+            }
+            return readFully(connection.getInputStream());
+        }
+        finally
+        {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Loads a Play Services image through ImageManager, which must be called on the main thread and
+     * hands back a Drawable. The Drawable is re-encoded so that it can be cached and downsampled like
+     * any other image.
+     * @param  uri         content URI of the image
+     * @return             encoded image data
+     * @throws IOException if the image could not be loaded in time
+     */
+    private byte[] loadFromImageManager(final Uri uri) throws IOException
+    {
+        final CountDownLatch loaded = new CountDownLatch(1);
+        final Drawable[] result = new Drawable[1];
+
+        final ImageManager.OnImageLoadedListener listener = new ImageManager.OnImageLoadedListener()
+        {
+            @Override
+            public void onImageLoaded(final Uri loadedUri, final Drawable drawable)
+            {
+                result[0] = drawable;
+                loaded.countDown();
+            }
+        };
+
+        pendingListeners.add(listener);
+        mainHandler.post(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                imageManager.loadImage(listener, uri);
+            }
+        });
+
+        try
+        {
+            if (!loaded.await(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS))
+            {
+                throw new IOException("Timed out loading " + uri);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted loading " + uri);
+        }
+        finally
+        {
+            pendingListeners.remove(listener);
+        }
+
+        if (result[0] == null)
+        {
+            throw new IOException("Unable to load " + uri);
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(BUFFER_SIZE);
+        toBitmap(result[0]).compress(Bitmap.CompressFormat.PNG, 100, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Converts a Drawable to a Bitmap, drawing it if it is not already backed by one.
+     * @param  drawable    drawable to convert
+     * @return             bitmap
+     * @throws IOException if the drawable has no size
+     */
+    private static Bitmap toBitmap(final Drawable drawable) throws IOException
+    {
+        if (drawable instanceof BitmapDrawable && ((BitmapDrawable) drawable).getBitmap() != null)
+        {
+            return ((BitmapDrawable) drawable).getBitmap();
+        }
+
+        int width = drawable.getIntrinsicWidth();
+        int height = drawable.getIntrinsicHeight();
+        if (width <= 0 || height <= 0)
+        {
+            throw new IOException("Image has no size.");
+        }
+
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(canvas);
+        return bitmap;
+    }
+
+    /**
+     * Reads a stream to its end and closes it.
+     * @param  input       stream to read
+     * @return             bytes read
+     * @throws IOException if the stream could not be read
+     */
+    private static byte[] readFully(final InputStream input) throws IOException
+    {
+        try
+        {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(BUFFER_SIZE);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = input.read(buffer)) != -1)
+            {
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+}
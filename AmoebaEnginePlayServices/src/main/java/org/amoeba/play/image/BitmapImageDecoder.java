@@ -0,0 +1,60 @@
+package org.amoeba.play.image;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+/**
+ * Decodes images into Android Bitmaps. Bitmaps are decoded as mutable so that, once evicted from the
+ * memory cache, their memory can be reused through BitmapFactory.Options.inBitmap.
+ */
+public class BitmapImageDecoder implements ImageDecoder<Bitmap>
+{
+    @Override
+    public ImageSize readSize(final byte[] data)
+    {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+
+        if (options.outWidth <= 0 || options.outHeight <= 0)
+        {
+            return null;
+        }
+        return new ImageSize(options.outWidth, options.outHeight);
+    }
+
+    @Override
+    public Bitmap decode(final byte[] data, final int sampleSize, final Bitmap reusable)
+    {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inBitmap = reusable;
+
+        try
+        {
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
+        catch (IllegalArgumentException e)
+        {
+            //The reusable bitmap was rejected, so decode into new memory instead.
+            options.inBitmap = null;
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
+    }
+
+    @Override
+    public boolean canReuse(final Bitmap candidate, final int width, final int height,
+            final int sampleSize)
+    {
+        //Before API 19, inBitmap only accepts a bitmap of exactly the same size, without downsampling.
+        return candidate.isMutable() && !candidate.isRecycled() && sampleSize == 1
+                && candidate.getWidth() == width && candidate.getHeight() == height;
+    }
+
+    @Override
+    public int getByteCount(final Bitmap image)
+    {
+        return image.getByteCount();
+    }
+}
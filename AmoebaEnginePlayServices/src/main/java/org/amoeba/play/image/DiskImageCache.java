@@ -0,0 +1,285 @@
+package org.amoeba.play.image;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of encoded image data on disk, bounded by total file size with the least recently used files
+ * evicted first. The cache is best-effort: any IO failure is treated as a cache miss.
+ * <p>
+ * Access order is tracked in memory, since File.setLastModified silently fails on the internal storage
+ * of many devices. Modification times are only used to seed the order of files left by an earlier
+ * process, and are updated where possible so that this seeding stays close to the true order.
+ */
+public class DiskImageCache
+{
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long maxBytes;
+
+    //Sizes of stored files by name, least recently used first. Built from the directory on first use.
+    private LinkedHashMap<String, Long> entries;
+    private long currentBytes;
+
+    /**
+     * Constructor.
+     * @param cacheDirectory directory in which to store images, created if necessary
+     * @param sizeInBytes    maximum size of all stored images
+     */
+    public DiskImageCache(final File cacheDirectory, final long sizeInBytes)
+    {
+        directory = cacheDirectory;
+        maxBytes = sizeInBytes;
+    }
+
+    /**
+     * Returns the stored data of an image, marking it as most recently used.
+     * @param  uri URI of the image
+     * @return     encoded image data, or null if not stored
+     */
+    public synchronized byte[] get(final String uri)
+    {
+        File file = getFile(uri);
+        if (!file.isFile())
+        {
+            forget(file.getName());
+            return null;
+        }
+
+        InputStream input = null;
+        try
+        {
+            input = new FileInputStream(file);
+            byte[] data = new byte[(int) file.length()];
+            new DataInputStream(input).readFully(data);
+
+            //Reading the entry moves it to the most recently used end of the access-ordered map.
+            if (getEntries().get(file.getName()) == null)
+            {
+                record(file.getName(), data.length);
+            }
+            file.setLastModified(System.currentTimeMillis());
+            return data;
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+        finally
+        {
+            close(input);
+        }
+    }
+
+    /**
+     * Stores the data of an image, evicting the least recently used images as needed.
+     * @param uri  URI of the image
+     * @param data encoded image data
+     */
+    public synchronized void put(final String uri, final byte[] data)
+    {
+        if (data.length > maxBytes || (!directory.isDirectory() && !directory.mkdirs()))
+        {
+            return;
+        }
+
+        //Write to a temporary file first so that a partially written image is never read back.
+        File file = getFile(uri);
+        File tempFile = new File(directory, file.getName() + TEMP_SUFFIX);
+        OutputStream output = null;
+        try
+        {
+            output = new FileOutputStream(tempFile);
+            output.write(data);
+            output.close();
+            output = null;
+
+            if (!tempFile.renameTo(file))
+            {
+                tempFile.delete();
+                return;
+            }
+            record(file.getName(), data.length);
+        }
+        catch (IOException e)
+        {
+            tempFile.delete();
+            return;
+        }
+        finally
+        {
+            close(output);
+        }
+
+        trimToSize();
+    }
+
+    /**
+     * Deletes all stored images.
+     */
+    public synchronized void clear()
+    {
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                file.delete();
+            }
+        }
+
+        entries = null;
+        currentBytes = 0;
+    }
+
+    /**
+     * Deletes least recently used images until the cache fits within its maximum size.
+     */
+    private void trimToSize()
+    {
+        Iterator<Map.Entry<String, Long>> iterator = getEntries().entrySet().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext())
+        {
+            Map.Entry<String, Long> entry = iterator.next();
+            File file = new File(directory, entry.getKey());
+            if (file.delete() || !file.exists())
+            {
+                iterator.remove();
+                currentBytes -= entry.getValue();
+            }
+        }
+    }
+
+    /**
+     * Returns the stored files in access order, indexing the directory on first use. Files left by an
+     * earlier process are ordered by modification time, and leftover temporary files are deleted.
+     * @return sizes of stored files by name, least recently used first
+     */
+    private LinkedHashMap<String, Long> getEntries()
+    {
+        if (entries != null)
+        {
+            return entries;
+        }
+
+        entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+        currentBytes = 0;
+
+        File[] files = directory.listFiles();
+        if (files == null)
+        {
+            return entries;
+        }
+
+        Arrays.sort(files, new Comparator<File>()
+        {
+            @Override
+            public int compare(final File first, final File second)
+            {
+                long difference = first.lastModified() - second.lastModified();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+
+        for (File file : files)
+        {
+            if (file.getName().endsWith(TEMP_SUFFIX))
+            {
+                file.delete();
+            }
+            else if (file.isFile())
+            {
+                entries.put(file.getName(), file.length());
+                currentBytes += file.length();
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Records a stored file as the most recently used.
+     * @param name   name of the file
+     * @param length size of the file in bytes
+     */
+    private void record(final String name, final long length)
+    {
+        forget(name);
+        getEntries().put(name, length);
+        currentBytes += length;
+    }
+
+    /**
+     * Removes a file from the access order, if it is recorded.
+     * @param name name of the file
+     */
+    private void forget(final String name)
+    {
+        Long length = getEntries().remove(name);
+        if (length != null)
+        {
+            currentBytes -= length;
+        }
+    }
+
+    /**
+     * Determines the file in which an image is stored, named by a hash of its URI.
+     * @param  uri URI of the image
+     * @return     file for the image
+     */
+    private File getFile(final String uri)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(uri.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+            {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16));
+                name.append(Character.forDigit(b & 0xF, 16));
+            }
+            return new File(directory, name.toString());
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            return new File(directory, Integer.toHexString(uri.hashCode()));
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            return new File(directory, Integer.toHexString(uri.hashCode()));
+        }
+    }
+
+    /**
+     * Closes a stream, ignoring any failure.
+     * @param stream stream to close, may be null
+     */
+    private static void close(final Closeable stream)
+    {
+        if (stream != null)
+        {
+            try
+            {
+                stream.close();
+            }
+            catch (IOException e)
+            {
+                //Nothing more can be done.
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.amoeba.play.image;
+
+/**
+ * Decodes encoded image data into displayable images. Kept separate from the loader and caches so that
+ * they may be exercised without the Android graphics classes.
+ * @param <T> type of decoded image
+ */
+public interface ImageDecoder<T>
+{
+    /**
+     * Reads the dimensions of an encoded image without decoding it.
+     * @param  data encoded image data
+     * @return      dimensions of the image, or null if the data is not a readable image
+     */
+    public ImageSize readSize(byte[] data);
+
+    /**
+     * Decodes an encoded image, downsampled by the given factor.
+     * @param  data       encoded image data
+     * @param  sampleSize power of two by which to reduce each dimension
+     * @param  reusable   previously decoded image whose memory may be reused, or null
+     * @return            decoded image, or null if the data could not be decoded
+     */
+    public T decode(byte[] data, int sampleSize, T reusable);
+
+    /**
+     * Determines whether or not a previously decoded image's memory can hold a new decode.
+     * @param  candidate  previously decoded image
+     * @param  width      width of the encoded image about to be decoded
+     * @param  height     height of the encoded image about to be decoded
+     * @param  sampleSize sample size the image is about to be decoded with
+     * @return            whether or not the candidate can be reused
+     */
+    public boolean canReuse(T candidate, int width, int height, int sampleSize);
+
+    /**
+     * Returns the memory used by a decoded image.
+     * @param  image decoded image
+     * @return       size of the image in bytes
+     */
+    public int getByteCount(T image);
+}
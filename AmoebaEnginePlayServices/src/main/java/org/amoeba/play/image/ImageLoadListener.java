@@ -0,0 +1,24 @@
+package org.amoeba.play.image;
+
+import java.io.IOException;
+
+/**
+ * Listener for the completion of an ImageLoader request.
+ * @param <T> type of decoded image
+ */
+public interface ImageLoadListener<T>
+{
+    /**
+     * Callback for a successfully loaded image.
+     * @param uri   URI of the requested image
+     * @param image decoded image, to be given back with ImageLoader.release once no longer used
+     */
+    public void onImageLoaded(String uri, T image);
+
+    /**
+     * Callback for a failure to load an image.
+     * @param uri   URI of the requested image
+     * @param error reason the image could not be loaded
+     */
+    public void onImageLoadFailed(String uri, IOException error);
+}
@@ -0,0 +1,284 @@
+package org.amoeba.play.image;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads images such as player avatars, downsampled to the size they will be displayed at. Decoded
+ * images are kept in a memory cache and encoded data in an optional disk cache, so that screens showing
+ * the same avatar do not decode it again. Concurrent requests for the same image at the same size share
+ * a single load. Each image handed out should be given back with release once it is no longer drawn,
+ * so that its memory can be reused after it leaves the cache.
+ * @param <T> type of decoded image
+ */
+public class ImageLoader<T>
+{
+    private final ImageSource source;
+    private final ImageDecoder<T> decoder;
+    private final MemoryImageCache<T> memoryCache;
+    private final DiskImageCache diskCache;
+    private final Executor workExecutor;
+    private final Executor callbackExecutor;
+
+    //Listeners waiting on each in-flight load, by cache key.
+    private final Map<String, List<ImageLoadListener<T>>> pendingRequests;
+
+    /**
+     * Constructor.
+     * @param imageSource    source of encoded image data
+     * @param imageDecoder   decoder for encoded image data
+     * @param memory         cache of decoded images
+     * @param disk           cache of encoded image data, or null to disable disk caching
+     * @param backgroundWork executor on which images are loaded and decoded
+     * @param callbacks      executor on which listeners are called back
+     */
+    public ImageLoader(final ImageSource imageSource, final ImageDecoder<T> imageDecoder,
+            final MemoryImageCache<T> memory, final DiskImageCache disk, final Executor backgroundWork,
+            final Executor callbacks)
+    {
+        source = imageSource;
+        decoder = imageDecoder;
+        memoryCache = memory;
+        diskCache = disk;
+        workExecutor = backgroundWork;
+        callbackExecutor = callbacks;
+        pendingRequests = new HashMap<String, List<ImageLoadListener<T>>>();
+    }
+
+    /**
+     * Returns an image from the memory cache without loading it. A returned image must be given back
+     * with release once it is no longer used.
+     * @param  uri    URI of the image
+     * @param  width  width the image will be displayed at, or 0 for full size
+     * @param  height height the image will be displayed at, or 0 for full size
+     * @return        cached image, or null if not cached
+     */
+    public T getCached(final String uri, final int width, final int height)
+    {
+        return memoryCache.acquire(getKey(uri, width, height));
+    }
+
+    /**
+     * Gives back an image handed out by this loader. Images which are never released stay valid but
+     * their memory is never reused.
+     * @param image image no longer used
+     */
+    public void release(final T image)
+    {
+        memoryCache.release(image);
+    }
+
+    /**
+     * Loads an image. The listener is always called back on the callback executor, even if the image is
+     * already in the memory cache. The image passed to the listener must be given back with release once
+     * it is no longer used.
+     * @param uri      URI of the image
+     * @param width    width the image will be displayed at, or 0 for full size
+     * @param height   height the image will be displayed at, or 0 for full size
+     * @param listener listener to call back with the image
+     */
+    public void load(final String uri, final int width, final int height,
+            final ImageLoadListener<T> listener)
+    {
+        final String key = getKey(uri, width, height);
+
+        T cached = memoryCache.acquire(key);
+        if (cached == null)
+        {
+            synchronized (pendingRequests)
+            {
+                //A load may have cached the image and finished since the check above, so check again
+                //before starting another decode of the same image.
+                cached = memoryCache.acquire(key);
+                if (cached == null)
+                {
+                    List<ImageLoadListener<T>> listeners = pendingRequests.get(key);
+                    if (listeners != null)
+                    {
+                        listeners.add(listener);
+                        return;
+                    }
+
+                    listeners = new ArrayList<ImageLoadListener<T>>();
+                    listeners.add(listener);
+                    pendingRequests.put(key, listeners);
+                }
+            }
+        }
+
+        if (cached != null)
+        {
+            final T cachedImage = cached;
+            callbackExecutor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    listener.onImageLoaded(uri, cachedImage);
+                }
+            });
+            return;
+        }
+
+        workExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                loadInBackground(key, uri, width, height);
+            }
+        });
+    }
+
+    /**
+     * Loads, decodes and caches an image, then calls back everyone waiting on it.
+     * @param key    cache key of the image
+     * @param uri    URI of the image
+     * @param width  width the image will be displayed at
+     * @param height height the image will be displayed at
+     */
+    private void loadInBackground(final String key, final String uri, final int width, final int height)
+    {
+        T image = null;
+        IOException error = null;
+        try
+        {
+            image = decode(loadData(uri), width, height);
+        }
+        catch (IOException e)
+        {
+            error = e;
+        }
+        catch (RuntimeException e)
+        {
+            //Still fail the waiting listeners, or later requests would join a load that never ends.
+            error = new IOException(e);
+        }
+
+        //Cache the image holding a reference for each waiting listener, so that it cannot be evicted
+        //and reused before they have had it.
+        final List<ImageLoadListener<T>> listeners;
+        synchronized (pendingRequests)
+        {
+            listeners = pendingRequests.remove(key);
+            if (image != null)
+            {
+                memoryCache.put(key, image, listeners.size());
+            }
+        }
+
+        final T loadedImage = image;
+        final IOException loadError = error;
+        callbackExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (ImageLoadListener<T> listener : listeners)
+                {
+                    if (loadedImage != null)
+                    {
+                        listener.onImageLoaded(uri, loadedImage);
+                    }
+                    else
+                    {
+                        listener.onImageLoadFailed(uri, loadError);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the encoded data of an image, from the disk cache if possible.
+     * @param  uri         URI of the image
+     * @return             encoded image data
+     * @throws IOException if the image could not be loaded
+     */
+    private byte[] loadData(final String uri) throws IOException
+    {
+        byte[] data = null;
+        if (diskCache != null)
+        {
+            data = diskCache.get(uri);
+        }
+
+        if (data == null)
+        {
+            data = source.load(uri);
+            if (diskCache != null)
+            {
+                diskCache.put(uri, data);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Decodes an image, downsampled towards the size it will be displayed at.
+     * @param  data        encoded image data
+     * @param  width       width the image will be displayed at
+     * @param  height      height the image will be displayed at
+     * @return             decoded image
+     * @throws IOException if the data could not be decoded
+     */
+    private T decode(final byte[] data, final int width, final int height) throws IOException
+    {
+        ImageSize size = decoder.readSize(data);
+        if (size == null)
+        {
+            throw new IOException("Unable to read image size.");
+        }
+
+        int sampleSize = calculateSampleSize(size.getWidth(), size.getHeight(), width, height);
+        T reusable = memoryCache.takeReusable(size.getWidth(), size.getHeight(), sampleSize);
+        T image = decoder.decode(data, sampleSize, reusable);
+        if (image == null)
+        {
+            throw new IOException("Unable to decode image.");
+        }
+        return image;
+    }
+
+    /**
+     * Determines the largest power of two by which an image can be downsampled while still covering
+     * the requested size.
+     * @param  sourceWidth     width of the encoded image
+     * @param  sourceHeight    height of the encoded image
+     * @param  requestedWidth  width the image will be displayed at, or 0 for full size
+     * @param  requestedHeight height the image will be displayed at, or 0 for full size
+     * @return                 sample size
+     */
+    public static int calculateSampleSize(final int sourceWidth, final int sourceHeight,
+            final int requestedWidth, final int requestedHeight)
+    {
+        int sampleSize = 1;
+        if (requestedWidth <= 0 || requestedHeight <= 0)
+        {
+            return sampleSize;
+        }
+
+        while (sourceWidth / (sampleSize * 2) >= requestedWidth
+                && sourceHeight / (sampleSize * 2) >= requestedHeight)
+        {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Determines the memory cache key of an image at a given display size.
+     * @param  uri    URI of the image
+     * @param  width  width the image will be displayed at
+     * @param  height height the image will be displayed at
+     * @return        cache key
+     */
+    private static String getKey(final String uri, final int width, final int height)
+    {
+        return uri + "#" + width + "x" + height;
+    }
+}
@@ -0,0 +1,39 @@
+package org.amoeba.play.image;
+
+/**
+ * Width and height of an encoded image, in pixels.
+ */
+public final class ImageSize
+{
+    private final int width;
+    private final int height;
+
+    /**
+     * Constructor.
+     * @param imageWidth  width in pixels
+     * @param imageHeight height in pixels
+     */
+    public ImageSize(final int imageWidth, final int imageHeight)
+    {
+        width = imageWidth;
+        height = imageHeight;
+    }
+
+    /**
+     * Returns the width of the image.
+     * @return width in pixels
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the height of the image.
+     * @return height in pixels
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+}
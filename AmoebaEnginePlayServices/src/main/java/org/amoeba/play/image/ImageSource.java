@@ -0,0 +1,17 @@
+package org.amoeba.play.image;
+
+import java.io.IOException;
+
+/**
+ * Source of encoded image data, e.g. player and inviter avatars from the Games and Plus clients.
+ */
+public interface ImageSource
+{
+    /**
+     * Loads the encoded bytes of an image. Called on a background thread.
+     * @param  uri         URI of the image to load
+     * @return             encoded image data
+     * @throws IOException if the image could not be loaded
+     */
+    public byte[] load(String uri) throws IOException;
+}
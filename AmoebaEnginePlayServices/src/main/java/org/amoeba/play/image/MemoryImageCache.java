@@ -0,0 +1,238 @@
+package org.amoeba.play.image;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of decoded images, bounded by the total memory the images use rather than
+ * by their count. Images handed out by the cache are reference counted; once an image has been both
+ * evicted and released by everyone holding it, it is kept in a small pool so that its memory can be
+ * reused by a later decode. Images which are never released are simply never reused.
+ * @param <T> type of decoded image
+ */
+public class MemoryImageCache<T>
+{
+    private static final int DEFAULT_MAX_REUSABLE = 8;
+
+    private final ImageDecoder<T> decoder;
+    private final LinkedHashMap<String, T> entries;
+    private final LinkedList<T> reusable;
+    private final int maxBytes;
+    private final int maxReusable;
+    private int currentBytes;
+
+    //Reference counts of images handed out and not yet released.
+    private final IdentityHashMap<T, Integer> references;
+
+    //Images evicted while still referenced, to be pooled once released.
+    private final IdentityHashMap<T, Boolean> evictedInUse;
+
+    /**
+     * Constructor.
+     * @param imageDecoder decoder used to measure and reuse images
+     * @param sizeInBytes  maximum memory used by cached images
+     */
+    public MemoryImageCache(final ImageDecoder<T> imageDecoder, final int sizeInBytes)
+    {
+        this(imageDecoder, sizeInBytes, DEFAULT_MAX_REUSABLE);
+    }
+
+    /**
+     * Constructor given the size of the reuse pool.
+     * @param imageDecoder   decoder used to measure and reuse images
+     * @param sizeInBytes    maximum memory used by cached images
+     * @param reusableImages maximum number of released images kept for reuse, 0 to disable reuse
+     */
+    public MemoryImageCache(final ImageDecoder<T> imageDecoder, final int sizeInBytes,
+            final int reusableImages)
+    {
+        decoder = imageDecoder;
+        entries = new LinkedHashMap<String, T>(16, 0.75f, true);
+        reusable = new LinkedList<T>();
+        maxBytes = sizeInBytes;
+        maxReusable = reusableImages;
+        currentBytes = 0;
+        references = new IdentityHashMap<T, Integer>();
+        evictedInUse = new IdentityHashMap<T, Boolean>();
+    }
+
+    /**
+     * Returns a cached image, marking it as most recently used, and takes a reference to it which
+     * must be given back with release once the image is no longer used.
+     * @param  key key of the image
+     * @return     cached image, or null if not cached
+     */
+    public synchronized T acquire(final String key)
+    {
+        T image = entries.get(key);
+        if (image != null)
+        {
+            retain(image, 1);
+        }
+        return image;
+    }
+
+    /**
+     * Adds an image to the cache, evicting the least recently used images as needed. Images larger
+     * than the whole cache are not cached, but are still referenced.
+     * @param key        key of the image
+     * @param image      image to cache
+     * @param referenced number of references to take to the image, as with acquire
+     */
+    public synchronized void put(final String key, final T image, final int referenced)
+    {
+        retain(image, referenced);
+
+        int size = decoder.getByteCount(image);
+        if (size > maxBytes)
+        {
+            return;
+        }
+
+        T previous = entries.put(key, image);
+        if (previous != null && previous != image)
+        {
+            currentBytes -= decoder.getByteCount(previous);
+            evict(previous);
+        }
+        currentBytes += size;
+
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * Gives back a reference taken by acquire or put. Once an evicted image has no references left
+     * its memory may be reused.
+     * @param image image no longer used
+     */
+    public synchronized void release(final T image)
+    {
+        Integer count = references.get(image);
+        if (count == null)
+        {
+            return;
+        }
+
+        if (count > 1)
+        {
+            references.put(image, count - 1);
+            return;
+        }
+
+        references.remove(image);
+        if (evictedInUse.remove(image) != null)
+        {
+            addReusable(image);
+        }
+    }
+
+    /**
+     * Removes and returns a released, evicted image whose memory can hold the given decode.
+     * @param  width      width of the encoded image about to be decoded
+     * @param  height     height of the encoded image about to be decoded
+     * @param  sampleSize sample size the image is about to be decoded with
+     * @return            reusable image, or null if there is none
+     */
+    public synchronized T takeReusable(final int width, final int height, final int sampleSize)
+    {
+        Iterator<T> iterator = reusable.iterator();
+        while (iterator.hasNext())
+        {
+            T candidate = iterator.next();
+            if (decoder.canReuse(candidate, width, height, sampleSize))
+            {
+                iterator.remove();
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the memory currently used by cached images.
+     * @return size of cached images in bytes
+     */
+    public synchronized int size()
+    {
+        return currentBytes;
+    }
+
+    /**
+     * Evicts all cached images and drops the reuse pool, e.g. in response to onTrimMemory.
+     */
+    public synchronized void clear()
+    {
+        trimToSize(0);
+        reusable.clear();
+        evictedInUse.clear();
+    }
+
+    /**
+     * Evicts least recently used images until the cache fits within the given size.
+     * @param size maximum memory used by cached images after trimming
+     */
+    private void trimToSize(final int size)
+    {
+        Iterator<Map.Entry<String, T>> iterator = entries.entrySet().iterator();
+        while (currentBytes > size && iterator.hasNext())
+        {
+            T evicted = iterator.next().getValue();
+            iterator.remove();
+            currentBytes -= decoder.getByteCount(evicted);
+            evict(evicted);
+        }
+    }
+
+    /**
+     * Handles an image which has left the cache, pooling it now if nobody holds it.
+     * @param image evicted image
+     */
+    private void evict(final T image)
+    {
+        if (references.containsKey(image))
+        {
+            evictedInUse.put(image, Boolean.TRUE);
+        }
+        else
+        {
+            addReusable(image);
+        }
+    }
+
+    /**
+     * Adds an image to the reuse pool, dropping the oldest pooled image if the pool is full.
+     * @param image image whose memory may be reused
+     */
+    private void addReusable(final T image)
+    {
+        if (maxReusable <= 0)
+        {
+            return;
+        }
+
+        if (reusable.size() >= maxReusable)
+        {
+            reusable.removeFirst();
+        }
+        reusable.addLast(image);
+    }
+
+    /**
+     * Adds references to an image.
+     * @param image image to reference
+     * @param count number of references to add
+     */
+    private void retain(final T image, final int count)
+    {
+        if (count <= 0)
+        {
+            return;
+        }
+
+        Integer current = references.get(image);
+        references.put(image, current == null ? count : current + count);
+    }
+}
@@ -19,4 +19,11 @@ public interface PlayServicesEventHandler
      * Callback for forceful disconnection of Play Services clients.
      */
     public void onDisconnection();
+
+    /**
+     * Callback for a change in sign in progress or error state, to be rendered in-game. Called on the
+     * UI thread; the same status can be polled from the render thread via PlayServicesHelper.getStatus().
+     * @param status new sign in status
+     */
+    public void onStatusChanged(PlayServicesStatus status);
 }
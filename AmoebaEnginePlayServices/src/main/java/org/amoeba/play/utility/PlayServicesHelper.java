@@ -16,15 +16,31 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
     //Request code when invoking Activities for which the result does not matter.
     private static final int RC_UNUSED = 9002;
 
+    //Interval between connection health checks while signed in.
+    private static final long WATCHDOG_INTERVAL_MS = 15000;
+
+    //Time after which a client that is still connecting is assumed to be stuck.
+    private static final long CONNECT_TIMEOUT_MS = 30000;
+
+    //Failed background reconnects tolerated before giving up on the sign in as a whole. The delay
+    //before each retry doubles, starting from the watchdog interval.
+    private static final int MAX_RECONNECT_FAILURES = 4;
+
+    private static final int[] CLIENTS = {CLIENT_GAMES, CLIENT_PLUS, CLIENT_APPSTATE};
+
     private Activity activity;
     private PlayServicesEventHandler eventHandler;
 
     private PlayServicesClientRequest clientRequest;
     //private List scopes;
 
-    //private String signingInMessage;
-    //private String signingOutMessage;
-    //private String unknownErrorMessage;
+    private String signingInMessage;
+    private String signingOutMessage;
+    private String unknownErrorMessage;
+    private SparseArray<String> errorMessages;
+
+    //Read from the render thread, so always replaced rather than modified.
+    private volatile PlayServicesStatus status;
 
     private GamesClient gamesClient;
     private PlusClient plusClient;
@@ -33,12 +49,22 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
     private boolean expectingConnectionResolution;
     private boolean autoSignInEnabled;
 
-    //Bitmask representation of connected clients.
-    private int connectedClients;
+    //Bitmask representation of connected clients. Written on the main thread but read from game logic.
+    private volatile int connectedClients;
     private int currentlyConnectingClient;
     private String invitation;
     private boolean currentResolvingConnectionIssue;
 
+    //Connection health watchdog, run on the main thread alongside the client callbacks.
+    private Handler watchdogHandler;
+    private Runnable watchdogCheck;
+    private Runnable reconnectCheck;
+    private boolean watchdogRunning;
+    private boolean reconnecting;
+    private long connectStartTime;
+    private int reconnectFailures;
+    private long nextReconnectTime;
+
     /**
      * Constructor.
      * @param  creatingActivity activity that is creating this helper.
@@ -57,11 +83,45 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
         invitation = null;
         currentResolvingConnectionIssue = false;
 
+        watchdogHandler = new Handler(Looper.getMainLooper());
+        watchdogCheck = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (watchdogRunning)
+                {
+                    checkConnectionHealth();
+                    watchdogHandler.postDelayed(this, WATCHDOG_INTERVAL_MS);
+                }
+            }
+        };
+        reconnectCheck = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                reconnectStaleClients();
+            }
+        };
+        watchdogRunning = false;
+        reconnecting = false;
+        connectStartTime = 0;
+        reconnectFailures = 0;
+        nextReconnectTime = 0;
+
         //scopes = new ArrayList<String>();
 
-        //signingInMessage = "Signing in...";
-        //signingOutMessage = "Signing out...";
-        //unknownErrorMessage = "Unknown error occurred."
+        signingInMessage = "Signing in...";
+        signingOutMessage = "Signing out...";
+        unknownErrorMessage = "Unknown error occurred.";
+        errorMessages = new SparseArray<String>();
+        errorMessages.put(ConnectionResult.NETWORK_ERROR, "Unable to connect to the network.");
+        errorMessages.put(ConnectionResult.SIGN_IN_REQUIRED, "Sign in required.");
+        errorMessages.put(ConnectionResult.INVALID_ACCOUNT, "Invalid account.");
+        errorMessages.put(ConnectionResult.LICENSE_CHECK_FAILED, "License check failed.");
+        errorMessages.put(ConnectionResult.INTERNAL_ERROR, "An internal error occurred. Please try again.");
+        status = PlayServicesStatus.IDLE;
     }
 
     /**
@@ -110,6 +170,9 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
      */
     public void onStart()
     {
+        //Any error from before the Activity was stopped is no longer relevant.
+        clearError();
+
         //If we are not here because we tried to resolve a connection issue
         //and are therefore expecting some resolution, and not here because
         //the user explicitly signed out (and will therefore manually invoke
@@ -140,12 +203,25 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
         int pendingClients = clientRequest.getClients() & ~connectedClients;
         if (pendingClients == 0)
         {
+            currentlyConnectingClient = CLIENT_NONE;
+
+            //A background reconnect restores an existing sign in, so there is nothing to report.
+            if (reconnecting)
+            {
+                reconnecting = false;
+                reconnectFailures = 0;
+                return;
+            }
+
             completeSignInProcess();
             notifyEventHandlerOfSignInSuccess();
             return;
         }
 
-        //showProgressDialog(true);
+        if (!reconnecting)
+        {
+            showProgress(true);
+        }
 
         if (gamesClient != null && (0 != (pendingClients & CLIENT_GAMES)))
         {
@@ -173,7 +249,8 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
         autoSignInEnabled = true;
         userInitiatedSignIn = false;
 
-        //dismissDialog();
+        dismissProgress();
+        startWatchdog();
     }
 
     /**
@@ -192,6 +269,8 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
      */
     private void connectCurrentClient()
     {
+        connectStartTime = SystemClock.elapsedRealtime();
+
         switch (currentlyConnectingClient)
         {
             case CLIENT_GAMES:
@@ -211,6 +290,12 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
     @Override
     public void onConnected(final Bundle connectionHint)
     {
+        //The attempt may have been abandoned, e.g. by a timeout or sign out, after this was queued.
+        if (currentlyConnectingClient == CLIENT_NONE)
+        {
+            return;
+        }
+
         connectedClients |= currentlyConnectingClient;
 
         //If this was a connection for the games client, and it came with
@@ -231,7 +316,30 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
     @Override
     public void onConnectionFailed(final ConnectionResult result)
     {
-        //dismissDialog();
+        //The attempt may have been abandoned, e.g. by a timeout or sign out, after this was queued.
+        if (currentlyConnectingClient == CLIENT_NONE)
+        {
+            return;
+        }
+
+        //A background reconnect which needs the player, e.g. to sign in again, cannot be completed
+        //in the background, so give up on the sign in as a whole. Anything else, such as a network
+        //error, is retried later while the other clients stay connected.
+        if (reconnecting)
+        {
+            if (result.hasResolution() || result.getErrorCode() == ConnectionResult.SIGN_IN_REQUIRED)
+            {
+                killConnections(CLIENT_ALL);
+                handleLostConnection();
+            }
+            else
+            {
+                handleReconnectFailure();
+            }
+            return;
+        }
+
+        dismissProgress();
 
         //If this was not a user initiated sign in, then fail and wait for the user
         //to reinitiate if desired. Only try to resolve the failure if the user
@@ -291,11 +399,12 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
             expectingConnectionResolution = false;
             if (responseCode == Activity.RESULT_OK)
             {
+                showProgress(true);
                 connectCurrentClient();
             }
             else
             {
-                cancelSignInProcess();
+                cancelSignInProcess(null);
             }
         }
     }
@@ -310,13 +419,11 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
         autoSignInEnabled = false;
         currentResolvingConnectionIssue = false;
 
-        //dismissDialog();
+        dismissProgress();
 
-        Dialog errorDialog = null;
         if (result != null)
         {
-            errorDialog = getErrorDialog(result.getErrorCode());
-            errorDialog.show();
+            showError(result.getErrorCode());
             if (eventHandler != null)
             {
                 eventHandler.onSignInFailure();
@@ -325,22 +432,100 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
     }
 
     /**
-     * Determines the error message and dialog associated with a given code.
-     * @param  errorCode code for which to search for a message and dialog
-     * @return           error dialog
+     * Reports a sign in error to be rendered in-game. An Android dialog is only shown when the user
+     * must leave the game to fix the problem (e.g. installing or updating Play Services), in which
+     * case the dialog alone reports the error.
+     * @param errorCode code of the error to report
      */
-    private Dialog getErrorDialog(final int errorCode)
+    private void showError(final int errorCode)
     {
-        Dialog errorDialog = GooglePlayServicesUtil.getErrorDialog(errorCode, mActivity,
-                RC_UNUSED, null);
+        if (GooglePlayServicesUtil.isUserRecoverableError(errorCode))
+        {
+            Dialog errorDialog = GooglePlayServicesUtil.getErrorDialog(errorCode, activity,
+                    RC_UNUSED, null);
+
+            if (errorDialog != null)
+            {
+                errorDialog.show();
+                return;
+            }
+        }
 
-        if (errorDialog != null)
+        setStatus(new PlayServicesStatus(PlayServicesStatus.STATE_ERROR,
+                errorMessages.get(errorCode, unknownErrorMessage), errorCode));
+    }
+
+    /**
+     * Clears a reported sign in error, e.g. once the engine has shown it and the player has
+     * dismissed it.
+     */
+    public void clearError()
+    {
+        if (status.isError())
         {
-            return errorDialog;
+            setStatus(PlayServicesStatus.IDLE);
         }
+    }
 
-        return (new AlertDialog.Builder(activity)).setMessage("some message")
-                .setNeutralButton(some.id, null).create();
+    /**
+     * Reports that a sign in or sign out is in progress, to be rendered in-game.
+     * @param signingIn whether signing in, as opposed to signing out
+     */
+    private void showProgress(final boolean signingIn)
+    {
+        if (signingIn)
+        {
+            setStatus(new PlayServicesStatus(PlayServicesStatus.STATE_SIGNING_IN, signingInMessage,
+                    PlayServicesStatus.NO_ERROR));
+        }
+        else
+        {
+            setStatus(new PlayServicesStatus(PlayServicesStatus.STATE_SIGNING_OUT, signingOutMessage,
+                    PlayServicesStatus.NO_ERROR));
+        }
+    }
+
+    /**
+     * Reports that no sign in or sign out is in progress any longer.
+     */
+    private void dismissProgress()
+    {
+        if (status.isInProgress())
+        {
+            setStatus(PlayServicesStatus.IDLE);
+        }
+    }
+
+    /**
+     * Replaces the current status and notifies the event handler, if it has changed.
+     * @param newStatus status to report
+     */
+    private void setStatus(final PlayServicesStatus newStatus)
+    {
+        //Connecting several clients reports the same progress repeatedly, so only notify on change.
+        String message = newStatus.getMessage();
+        boolean sameMessage = message == null ? status.getMessage() == null
+                : message.equals(status.getMessage());
+        if (newStatus.getState() == status.getState() && newStatus.getErrorCode() == status.getErrorCode()
+                && sameMessage)
+        {
+            return;
+        }
+
+        status = newStatus;
+        if (eventHandler != null)
+        {
+            eventHandler.onStatusChanged(newStatus);
+        }
+    }
+
+    /**
+     * Returns the current sign in status. Safe to call from the render thread every frame.
+     * @return current sign in status
+     */
+    public PlayServicesStatus getStatus()
+    {
+        return status;
     }
 
     /**
@@ -355,8 +540,7 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
             int result = GooglePlayServicesUtil.isGooglePlayServicesAvailable(activity);
             if (result != ConnectionResult.SUCCESS)
             {
-                Dialog errorDialog = getErrorDialog(result);
-                errorDialog.show();
+                showError(result);
                 if (eventHandler != null)
                 {
                     eventHandler.onSignInFailure();
@@ -369,7 +553,7 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
                 //attempt (likely via the automatic sign in), try that first.
                 if (currentResolvingConnectionIssue)
                 {
-                    //showProgressDialog(true);
+                    showProgress(true);
                     resolveConnectionResult();
                 }
                 else
@@ -386,13 +570,14 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
      */
     public void onStop()
     {
+        stopWatchdog();
+        cancelPendingConnection();
         killConnections(CLIENT_ALL);
 
         signedIn = false;
         signInError = false;
 
-        //dismissDialog();
-        progressDialog = null;
+        setStatus(PlayServicesStatus.IDLE);
     }
 
     /**
@@ -423,11 +608,214 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
         }
     }
 
+    /**
+     * Determines whether or not all of the given clients are currently connected, e.g. before
+     * submitting a score or saving state.
+     * @param  clients bit-mask containing clients to check
+     * @return         whether or not all of the clients are connected
+     */
+    public boolean areClientsConnected(final int clients)
+    {
+        return (connectedClients & clients) == clients;
+    }
+
+    /**
+     * Makes sure the given clients are connected before they are used, e.g. before submitting a score
+     * or saving state, rather than waiting for the watchdog to notice a dropped connection. Stale clients
+     * are reconnected in the background straight away, unless a reconnect is already in progress or
+     * backing off after a failure. May be called from any thread; the reconnect itself always runs on
+     * the main thread.
+     * @param  clients bit-mask containing clients about to be used
+     * @return         whether or not all of the clients are connected and ready to use now
+     */
+    public boolean ensureClientsConnected(final int clients)
+    {
+        if (Looper.myLooper() == Looper.getMainLooper())
+        {
+            reconnectStaleClients();
+        }
+        else
+        {
+            watchdogHandler.post(reconnectCheck);
+        }
+
+        return areClientsConnected(clients) && (findStaleClients() & clients) == CLIENT_NONE;
+    }
+
+    /**
+     * Reconnects any stale clients, and any whose earlier reconnect has backed off long enough, if
+     * signed in.
+     */
+    private void reconnectStaleClients()
+    {
+        if (watchdogRunning)
+        {
+            reconnectClients(findStaleClients());
+        }
+    }
+
+    /**
+     * Starts periodic connection health checks, if not already running.
+     */
+    private void startWatchdog()
+    {
+        if (!watchdogRunning)
+        {
+            watchdogRunning = true;
+            watchdogHandler.postDelayed(watchdogCheck, WATCHDOG_INTERVAL_MS);
+        }
+    }
+
+    /**
+     * Stops periodic connection health checks.
+     */
+    private void stopWatchdog()
+    {
+        watchdogRunning = false;
+        watchdogHandler.removeCallbacks(watchdogCheck);
+    }
+
+    /**
+     * Checks each connected client, reconnecting any which have dropped their connection, retrying
+     * earlier failed reconnects once their backoff has passed, and failing any reconnect which has
+     * stalled. Clients which still report isConnected() are trusted, as the clients offer no cheap
+     * way to probe a connection which is only half-open.
+     */
+    private void checkConnectionHealth()
+    {
+        if (currentlyConnectingClient != CLIENT_NONE)
+        {
+            if (SystemClock.elapsedRealtime() - connectStartTime > CONNECT_TIMEOUT_MS)
+            {
+                getClient(currentlyConnectingClient).disconnect();
+                handleReconnectFailure();
+            }
+            return;
+        }
+
+        reconnectClients(findStaleClients());
+    }
+
+    /**
+     * Determines which clients are marked as connected but no longer are.
+     * @return bit-mask containing stale clients
+     */
+    private int findStaleClients()
+    {
+        int staleClients = CLIENT_NONE;
+        for (int client : CLIENTS)
+        {
+            if ((connectedClients & client) != 0 && !getClient(client).isConnected())
+            {
+                staleClients |= client;
+            }
+        }
+        return staleClients;
+    }
+
+    /**
+     * Reconnects the given clients, and any whose earlier reconnect failed, in the background,
+     * leaving all other clients connected.
+     * @param clients bit-mask containing newly lost clients
+     */
+    private void reconnectClients(final int clients)
+    {
+        connectedClients &= ~clients;
+
+        //If a client is already connecting, the cleared clients will be picked up after it. If
+        //backing off after a failure, the watchdog will retry once the backoff has passed.
+        int missingClients = clientRequest.getClients() & ~connectedClients;
+        if (missingClients != CLIENT_NONE && currentlyConnectingClient == CLIENT_NONE
+                && SystemClock.elapsedRealtime() >= nextReconnectTime)
+        {
+            reconnecting = true;
+            connectNextClient();
+        }
+    }
+
+    /**
+     * Handles a failed or stalled background reconnect, scheduling a retry with backoff or, once
+     * too many have failed, giving up on the sign in as a whole.
+     */
+    private void handleReconnectFailure()
+    {
+        currentlyConnectingClient = CLIENT_NONE;
+        reconnecting = false;
+        reconnectFailures++;
+
+        if (reconnectFailures > MAX_RECONNECT_FAILURES)
+        {
+            killConnections(CLIENT_ALL);
+            handleLostConnection();
+            return;
+        }
+
+        nextReconnectTime = SystemClock.elapsedRealtime()
+                + (WATCHDOG_INTERVAL_MS << (reconnectFailures - 1));
+    }
+
+    /**
+     * Abandons the connection attempt in progress, if any, so that it cannot complete a sign in
+     * after the helper has been stopped or signed out.
+     */
+    private void cancelPendingConnection()
+    {
+        if (currentlyConnectingClient != CLIENT_NONE)
+        {
+            GooglePlayServicesClient client = getClient(currentlyConnectingClient);
+            if (client != null)
+            {
+                client.disconnect();
+            }
+            currentlyConnectingClient = CLIENT_NONE;
+        }
+
+        reconnecting = false;
+        reconnectFailures = 0;
+        nextReconnectTime = 0;
+    }
+
+    /**
+     * Returns the client for a single client constant.
+     * @param  client client constant
+     * @return        client, or null if it was not initialized
+     */
+    private GooglePlayServicesClient getClient(final int client)
+    {
+        switch (client)
+        {
+            case CLIENT_GAMES:
+                return gamesClient;
+            case CLIENT_PLUS:
+                return plusClient;
+            case CLIENT_APPSTATE:
+                return appStateClient;
+            default:
+                return null;
+        }
+    }
+
     @Override
     public void onDisconnected()
     {
-        //When we are forcefully disconnected from a client.
-        //Need to revisit the logic here.
+        //When we are forcefully disconnected from a client while signed in, reconnect only the
+        //clients that were lost, in the background, instead of discarding the whole sign in.
+        if (signedIn)
+        {
+            reconnectClients(findStaleClients());
+            return;
+        }
+
+        handleLostConnection();
+    }
+
+    /**
+     * Discards the sign in after connections have been lost, requiring the player to sign in again.
+     */
+    private void handleLostConnection()
+    {
+        stopWatchdog();
+        cancelPendingConnection();
 
         autoSignIn = false;
         signedIn = false;
@@ -435,6 +823,7 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
         invitation = null;
         connectedClients = CLIENT_NONE;
         currentResolvingConnectionIssue = false;
+        setStatus(PlayServicesStatus.IDLE);
 
         if (eventHandler != null)
         {
@@ -447,6 +836,9 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
      */
     public void signOut()
     {
+        stopWatchdog();
+        cancelPendingConnection();
+
         autoSignIn = false;
         signedIn = false;
         signInError = false;
@@ -458,7 +850,7 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
 
         if (gamesClient != null && gamesClient.isConnected())
         {
-            //showProgressDialog(false);
+            showProgress(false);
             gamesClient.signOut(this);
         }
 
@@ -469,28 +861,50 @@ public class PlayServicesHelper implements GooglePlayServicesClient.ConnectionCa
     @Override
     public void onSignOutComplete()
     {
-        //dismissDialog();
+        dismissProgress();
 
         //Why?
+        connectedClients &= ~CLIENT_GAMES;
         if (gamesClient.isConnected())
         {
             gamesClient.disconnect();
         }
     }
 
-	/*public void setSigningInMessage(String message)
-	{
-		signingInMessage = message;
-	}
+    /**
+     * Sets the message reported while signing in.
+     * @param message message to report
+     */
+    public void setSigningInMessage(final String message)
+    {
+        signingInMessage = message;
+    }
 
-	public void setSigningOutMessage(String message)
-	{
-		signingOutMessage = message;
-	}
+    /**
+     * Sets the message reported while signing out.
+     * @param message message to report
+     */
+    public void setSigningOutMessage(final String message)
+    {
+        signingOutMessage = message;
+    }
 
-	public void setUnknownErrorMessage(String message)
-	{
-		unknownErrorMessage = message;
-	}*/
+    /**
+     * Sets the message reported when sign in fails with a given ConnectionResult error code.
+     * @param errorCode error code the message is for
+     * @param message   message to report
+     */
+    public void setErrorMessage(final int errorCode, final String message)
+    {
+        errorMessages.put(errorCode, message);
+    }
 
+    /**
+     * Sets the message reported when sign in fails with an error that has no specific message.
+     * @param message message to report
+     */
+    public void setUnknownErrorMessage(final String message)
+    {
+        unknownErrorMessage = message;
+    }
 }
@@ -0,0 +1,81 @@
+package org.amoeba.play.utility;
+
+/**
+ * Immutable snapshot of the sign in state of the PlayServicesHelper, for the engine to render as an
+ * in-game overlay instead of a modal Android dialog. Snapshots are replaced rather than modified, so
+ * one may be safely read from the render thread while the helper moves on.
+ */
+public final class PlayServicesStatus
+{
+    public static final int STATE_IDLE = 0;
+    public static final int STATE_SIGNING_IN = 1;
+    public static final int STATE_SIGNING_OUT = 2;
+    public static final int STATE_ERROR = 3;
+
+    public static final int NO_ERROR = 0;
+
+    public static final PlayServicesStatus IDLE = new PlayServicesStatus(STATE_IDLE, null, NO_ERROR);
+
+    private final int state;
+    private final String message;
+    private final int errorCode;
+
+    /**
+     * Constructor.
+     * @param currentState state of the sign in process
+     * @param text         message to display for the state, may be null
+     * @param code         ConnectionResult error code for the error state, otherwise NO_ERROR
+     */
+    public PlayServicesStatus(final int currentState, final String text, final int code)
+    {
+        state = currentState;
+        message = text;
+        errorCode = code;
+    }
+
+    /**
+     * Returns the state of the sign in process.
+     * @return one of the STATE constants
+     */
+    public int getState()
+    {
+        return state;
+    }
+
+    /**
+     * Returns the message to display for this state.
+     * @return message, or null if nothing should be displayed
+     */
+    public String getMessage()
+    {
+        return message;
+    }
+
+    /**
+     * Returns the ConnectionResult error code behind an error state.
+     * @return error code, or NO_ERROR if this is not an error state
+     */
+    public int getErrorCode()
+    {
+        return errorCode;
+    }
+
+    /**
+     * Determines whether or not a sign in or sign out is in progress, i.e. whether a progress indicator
+     * should be shown.
+     * @return whether or not work is in progress
+     */
+    public boolean isInProgress()
+    {
+        return state == STATE_SIGNING_IN || state == STATE_SIGNING_OUT;
+    }
+
+    /**
+     * Determines whether or not the last sign in attempt failed.
+     * @return whether or not this is an error state
+     */
+    public boolean isError()
+    {
+        return state == STATE_ERROR;
+    }
+}
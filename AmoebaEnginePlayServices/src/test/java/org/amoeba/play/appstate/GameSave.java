@@ -0,0 +1,108 @@
+package org.amoeba.play.appstate;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Representative game save used by the codec tests and benchmark: a few scalars, a player name and
+ * per-level progress arrays.
+ */
+final class GameSave
+{
+    String playerName;
+    int level;
+    long totalScore;
+    float playTimeHours;
+    boolean tutorialComplete;
+    int[] levelScores;
+    float[] levelBestTimes;
+    boolean[] levelUnlocked;
+
+    /**
+     * Creates a save with deterministic contents for the given number of levels.
+     * @param  levels number of levels of progress
+     * @return        save
+     */
+    static GameSave create(final int levels)
+    {
+        Random random = new Random(levels);
+        GameSave save = new GameSave();
+        save.playerName = "Player \u00e9" + levels;
+        save.level = levels;
+        save.totalScore = random.nextInt(Integer.MAX_VALUE) * 1000L;
+        save.playTimeHours = random.nextFloat() * 100f;
+        save.tutorialComplete = true;
+        save.levelScores = new int[levels];
+        save.levelBestTimes = new float[levels];
+        save.levelUnlocked = new boolean[levels];
+        for (int i = 0; i < levels; i++)
+        {
+            save.levelScores[i] = random.nextInt(100000);
+            save.levelBestTimes[i] = random.nextFloat() * 300f;
+            save.levelUnlocked[i] = random.nextBoolean();
+        }
+        return save;
+    }
+
+    @Override
+    public boolean equals(final Object other)
+    {
+        if (!(other instanceof GameSave))
+        {
+            return false;
+        }
+
+        GameSave save = (GameSave) other;
+        return playerName.equals(save.playerName) && level == save.level && totalScore == save.totalScore
+                && playTimeHours == save.playTimeHours && tutorialComplete == save.tutorialComplete
+                && Arrays.equals(levelScores, save.levelScores)
+                && Arrays.equals(levelBestTimes, save.levelBestTimes)
+                && Arrays.equals(levelUnlocked, save.levelUnlocked);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return playerName.hashCode() * 31 + level;
+    }
+
+    /**
+     * Binary schema for GameSave.
+     */
+    static class Schema implements SaveDataSchema<GameSave>
+    {
+        @Override
+        public int getVersion()
+        {
+            return 1;
+        }
+
+        @Override
+        public void encode(final GameSave data, final SaveDataWriter writer)
+        {
+            writer.writeString(data.playerName);
+            writer.writeInt(data.level);
+            writer.writeLong(data.totalScore);
+            writer.writeFloat(data.playTimeHours);
+            writer.writeBoolean(data.tutorialComplete);
+            writer.writeIntArray(data.levelScores);
+            writer.writeFloatArray(data.levelBestTimes);
+            writer.writeBooleanArray(data.levelUnlocked);
+        }
+
+        @Override
+        public GameSave decode(final int version, final SaveDataReader reader)
+        {
+            GameSave save = new GameSave();
+            save.playerName = reader.readString();
+            save.level = reader.readInt();
+            save.totalScore = reader.readLong();
+            save.playTimeHours = reader.readFloat();
+            save.tutorialComplete = reader.readBoolean();
+            save.levelScores = reader.readIntArray();
+            save.levelBestTimes = reader.readFloatArray();
+            save.levelUnlocked = reader.readBooleanArray();
+            return save;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.amoeba.play.appstate;
+
+import java.io.UnsupportedEncodingException;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Compares encode and decode time and payload size of SaveDataCodec against org.json, as used by the
+ * hand-rolled JSON saves it replaces. Run as a main class on the JVM test classpath; save sizes range
+ * from a small profile up to a save close to the 128KB App State slot limit when written as JSON.
+ */
+public final class SaveDataCodecBenchmark
+{
+    private static final int[] LEVEL_COUNTS = {10, 200, 4000};
+    private static final int WARMUP_ITERATIONS = 2000;
+    private static final long MEASURE_NANOS = 1000000000L;
+
+    private static int sink;
+
+    /**
+     * Empty private constructor to prevent instantiation.
+     */
+    private SaveDataCodecBenchmark()
+    {
+
+    }
+
+    /**
+     * Runs the benchmark and prints one line per save size.
+     * @param args unused
+     * @throws Exception if JSON encoding fails
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        System.out.println("levels  json bytes  binary bytes  json enc us  binary enc us  json dec us  binary dec us");
+        for (int levels : LEVEL_COUNTS)
+        {
+            run(levels);
+        }
+    }
+
+    /**
+     * Benchmarks a single save size.
+     * @param  levels    number of levels of progress in the save
+     * @throws Exception if JSON encoding fails
+     */
+    private static void run(final int levels) throws Exception
+    {
+        final GameSave save = GameSave.create(levels);
+        final SaveDataCodec<GameSave> codec = new SaveDataCodec<GameSave>(new GameSave.Schema());
+        final byte[] json = toJson(save);
+        final byte[] binary = codec.encode(save);
+
+        if (!fromJson(json).equals(save) || !codec.decode(binary).equals(save))
+        {
+            throw new IllegalStateException("Round trip failed for " + levels + " levels.");
+        }
+
+        double jsonEncode = measure(new Task()
+        {
+            @Override
+            public void run() throws Exception
+            {
+                sink += toJson(save).length;
+            }
+        });
+        double binaryEncode = measure(new Task()
+        {
+            @Override
+            public void run()
+            {
+                sink += codec.encodeToBuffer(save).size();
+            }
+        });
+        double jsonDecode = measure(new Task()
+        {
+            @Override
+            public void run() throws Exception
+            {
+                sink += fromJson(json).level;
+            }
+        });
+        double binaryDecode = measure(new Task()
+        {
+            @Override
+            public void run()
+            {
+                sink += codec.decode(binary).level;
+            }
+        });
+
+        System.out.println(String.format("%6d  %10d  %12d  %11.1f  %13.1f  %11.1f  %13.1f", levels,
+                json.length, binary.length, jsonEncode, binaryEncode, jsonDecode, binaryDecode));
+    }
+
+    /**
+     * Measures the mean time of a task after warming it up.
+     * @param  task      task to measure
+     * @return           mean time per run, in microseconds
+     * @throws Exception if the task fails
+     */
+    private static double measure(final Task task) throws Exception
+    {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+        {
+            task.run();
+        }
+
+        long start = System.nanoTime();
+        long elapsed;
+        int runs = 0;
+        do
+        {
+            task.run();
+            runs++;
+            elapsed = System.nanoTime() - start;
+        }
+        while (elapsed < MEASURE_NANOS);
+
+        return elapsed / 1000.0 / runs;
+    }
+
+    /**
+     * Writes a save as JSON, the way the existing saves are written.
+     * @param  save                         save to write
+     * @return                              UTF-8 JSON payload
+     * @throws JSONException                if the save cannot be written
+     * @throws UnsupportedEncodingException never, as UTF-8 is always supported
+     */
+    private static byte[] toJson(final GameSave save) throws JSONException, UnsupportedEncodingException
+    {
+        JSONArray scores = new JSONArray();
+        JSONArray times = new JSONArray();
+        JSONArray unlocked = new JSONArray();
+        for (int i = 0; i < save.levelScores.length; i++)
+        {
+            scores.put(save.levelScores[i]);
+            times.put((double) save.levelBestTimes[i]);
+            unlocked.put(save.levelUnlocked[i]);
+        }
+
+        JSONObject object = new JSONObject();
+        object.put("playerName", save.playerName);
+        object.put("level", save.level);
+        object.put("totalScore", save.totalScore);
+        object.put("playTimeHours", (double) save.playTimeHours);
+        object.put("tutorialComplete", save.tutorialComplete);
+        object.put("levelScores", scores);
+        object.put("levelBestTimes", times);
+        object.put("levelUnlocked", unlocked);
+        return object.toString().getBytes("UTF-8");
+    }
+
+    /**
+     * Reads a save written by toJson.
+     * @param  payload                      UTF-8 JSON payload
+     * @return                              save read
+     * @throws JSONException                if the payload is not a valid save
+     * @throws UnsupportedEncodingException never, as UTF-8 is always supported
+     */
+    private static GameSave fromJson(final byte[] payload) throws JSONException, UnsupportedEncodingException
+    {
+        JSONObject object = new JSONObject(new String(payload, "UTF-8"));
+        JSONArray scores = object.getJSONArray("levelScores");
+        JSONArray times = object.getJSONArray("levelBestTimes");
+        JSONArray unlocked = object.getJSONArray("levelUnlocked");
+
+        GameSave save = new GameSave();
+        save.playerName = object.getString("playerName");
+        save.level = object.getInt("level");
+        save.totalScore = object.getLong("totalScore");
+        save.playTimeHours = (float) object.getDouble("playTimeHours");
+        save.tutorialComplete = object.getBoolean("tutorialComplete");
+        save.levelScores = new int[scores.length()];
+        save.levelBestTimes = new float[times.length()];
+        save.levelUnlocked = new boolean[unlocked.length()];
+        for (int i = 0; i < save.levelScores.length; i++)
+        {
+            save.levelScores[i] = scores.getInt(i);
+            save.levelBestTimes[i] = (float) times.getDouble(i);
+            save.levelUnlocked[i] = unlocked.getBoolean(i);
+        }
+        return save;
+    }
+
+    /**
+     * Unit of work to be measured.
+     */
+    private interface Task
+    {
+        /**
+         * Runs the work once.
+         * @throws Exception if the work fails
+         */
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,224 @@
+package org.amoeba.play.appstate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Tests for SaveDataWriter, SaveDataReader and SaveDataCodec.
+ */
+public class SaveDataCodecTest
+{
+    @Test
+    public void roundTripsPrimitives()
+    {
+        SaveDataWriter writer = new SaveDataWriter();
+        writer.writeInt(0);
+        writer.writeInt(-1);
+        writer.writeInt(Integer.MIN_VALUE);
+        writer.writeInt(Integer.MAX_VALUE);
+        writer.writeLong(Long.MIN_VALUE);
+        writer.writeLong(Long.MAX_VALUE);
+        writer.writeVarInt(-1);
+        writer.writeBoolean(true);
+        writer.writeFloat(-1.5f);
+        writer.writeDouble(Math.PI);
+
+        SaveDataReader reader = new SaveDataReader();
+        reader.reset(writer.toByteArray());
+        assertEquals(0, reader.readInt());
+        assertEquals(-1, reader.readInt());
+        assertEquals(Integer.MIN_VALUE, reader.readInt());
+        assertEquals(Integer.MAX_VALUE, reader.readInt());
+        assertEquals(Long.MIN_VALUE, reader.readLong());
+        assertEquals(Long.MAX_VALUE, reader.readLong());
+        assertEquals(-1, reader.readVarInt());
+        assertEquals(true, reader.readBoolean());
+        assertEquals(-1.5f, reader.readFloat(), 0f);
+        assertEquals(Math.PI, reader.readDouble(), 0d);
+        assertEquals(0, reader.remaining());
+    }
+
+    @Test
+    public void packsSmallIntegersIntoOneByte()
+    {
+        SaveDataWriter writer = new SaveDataWriter();
+        writer.writeInt(-64);
+        writer.writeInt(63);
+        assertEquals(2, writer.size());
+    }
+
+    @Test
+    public void roundTripsStrings()
+    {
+        String[] values = {"", null, "level-1", "h\u00e9llo \u20ac", "clef \ud834\udd1e", "lone \ud834"};
+
+        SaveDataWriter writer = new SaveDataWriter();
+        for (String value : values)
+        {
+            writer.writeString(value);
+        }
+
+        SaveDataReader reader = new SaveDataReader();
+        reader.reset(writer.toByteArray());
+        assertEquals("", reader.readString());
+        assertNull(reader.readString());
+        assertEquals("level-1", reader.readString());
+        assertEquals("h\u00e9llo \u20ac", reader.readString());
+        assertEquals("clef \ud834\udd1e", reader.readString());
+        //An unpaired surrogate is encoded on its own rather than dropped.
+        assertEquals("lone \ud834", reader.readString());
+    }
+
+    @Test
+    public void roundTripsArrays()
+    {
+        int[] ints = {0, -1, 300, Integer.MIN_VALUE};
+        long[] longs = {Long.MIN_VALUE, 0L, 1L << 40};
+        float[] floats = {0f, -2.5f, Float.NaN};
+        double[] doubles = {Double.MIN_VALUE, -Math.E, Double.NEGATIVE_INFINITY};
+        boolean[] booleans = {true, false, true, true, false, false, false, false, true};
+        byte[] bytes = {1, -2, 3};
+
+        SaveDataWriter writer = new SaveDataWriter(16);
+        writer.writeIntArray(ints);
+        writer.writeLongArray(longs);
+        writer.writeFloatArray(floats);
+        writer.writeDoubleArray(doubles);
+        writer.writeBooleanArray(booleans);
+        writer.writeBytes(bytes);
+
+        SaveDataReader reader = new SaveDataReader();
+        reader.reset(writer.toByteArray());
+        assertArrayEquals(ints, reader.readIntArray());
+        assertArrayEquals(longs, reader.readLongArray());
+        assertArrayEquals(floats, reader.readFloatArray(), 0f);
+        assertArrayEquals(doubles, reader.readDoubleArray(), 0d);
+        boolean[] readBooleans = reader.readBooleanArray();
+        assertEquals(booleans.length, readBooleans.length);
+        for (int i = 0; i < booleans.length; i++)
+        {
+            assertEquals(booleans[i], readBooleans[i]);
+        }
+        assertArrayEquals(bytes, reader.readBytes());
+        assertEquals(0, reader.remaining());
+    }
+
+    @Test
+    public void rejectsEveryTruncation()
+    {
+        SaveDataCodec<GameSave> codec = new SaveDataCodec<GameSave>(new GameSave.Schema());
+        byte[] payload = codec.encode(GameSave.create(4));
+
+        for (int length = 0; length < payload.length; length++)
+        {
+            try
+            {
+                codec.decode(payload, 0, length);
+                fail("Decoded a payload truncated to " + length + " bytes.");
+            }
+            catch (SaveDataFormatException e)
+            {
+                //Expected.
+            }
+        }
+    }
+
+    @Test(expected = SaveDataFormatException.class)
+    public void rejectsOverlongVarInt()
+    {
+        //The fifth byte carries bits beyond the 32 an int can hold.
+        SaveDataReader reader = new SaveDataReader();
+        reader.reset(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x1F});
+        reader.readVarInt();
+    }
+
+    @Test(expected = SaveDataFormatException.class)
+    public void rejectsOverlongVarLong()
+    {
+        //The tenth byte carries bits beyond the 64 a long can hold.
+        byte[] payload = new byte[10];
+        for (int i = 0; i < 9; i++)
+        {
+            payload[i] = (byte) 0xFF;
+        }
+        payload[9] = 0x02;
+
+        SaveDataReader reader = new SaveDataReader();
+        reader.reset(payload);
+        reader.readVarLong();
+    }
+
+    @Test
+    public void roundTripsThroughCodecWithReusedBuffers()
+    {
+        SaveDataCodec<GameSave> codec = new SaveDataCodec<GameSave>(new GameSave.Schema());
+        GameSave large = GameSave.create(500);
+        GameSave small = GameSave.create(2);
+
+        assertEquals(large, codec.decode(codec.encode(large)));
+        assertEquals(small, codec.decode(codec.encode(small)));
+    }
+
+    @Test
+    public void passesPayloadVersionToSchema()
+    {
+        final int[] decodedVersion = {-1};
+        SaveDataSchema<Integer> oldSchema = new IntegerSchema(1, decodedVersion);
+        SaveDataSchema<Integer> newSchema = new IntegerSchema(3, decodedVersion);
+
+        byte[] payload = new SaveDataCodec<Integer>(oldSchema).encode(42);
+        assertEquals(Integer.valueOf(42), new SaveDataCodec<Integer>(newSchema).decode(payload));
+        assertEquals(1, decodedVersion[0]);
+    }
+
+    @Test(expected = SaveDataFormatException.class)
+    public void rejectsNewerVersion()
+    {
+        byte[] payload = new SaveDataCodec<Integer>(new IntegerSchema(3, new int[1])).encode(42);
+        new SaveDataCodec<Integer>(new IntegerSchema(2, new int[1])).decode(payload);
+    }
+
+    @Test(expected = SaveDataFormatException.class)
+    public void rejectsJsonPayload()
+    {
+        new SaveDataCodec<GameSave>(new GameSave.Schema()).decode("{\"level\":1}".getBytes());
+    }
+
+    /**
+     * Schema holding a single integer, recording the version it was asked to decode.
+     */
+    private static class IntegerSchema implements SaveDataSchema<Integer>
+    {
+        private final int version;
+        private final int[] decodedVersion;
+
+        IntegerSchema(final int schemaVersion, final int[] lastDecodedVersion)
+        {
+            version = schemaVersion;
+            decodedVersion = lastDecodedVersion;
+        }
+
+        @Override
+        public int getVersion()
+        {
+            return version;
+        }
+
+        @Override
+        public void encode(final Integer data, final SaveDataWriter writer)
+        {
+            writer.writeInt(data);
+        }
+
+        @Override
+        public Integer decode(final int payloadVersion, final SaveDataReader reader)
+        {
+            decodedVersion[0] = payloadVersion;
+            return reader.readInt();
+        }
+    }
+}
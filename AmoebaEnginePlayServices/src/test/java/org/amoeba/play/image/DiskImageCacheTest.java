@@ -0,0 +1,122 @@
+package org.amoeba.play.image;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for DiskImageCache.
+ */
+public class DiskImageCacheTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void returnsStoredData()
+    {
+        DiskImageCache cache = new DiskImageCache(new File(folder.getRoot(), "images"), 100);
+        cache.put("content://avatars/1", new byte[] {1, 2, 3});
+
+        assertArrayEquals(new byte[] {1, 2, 3}, cache.get("content://avatars/1"));
+        assertNull(cache.get("content://avatars/2"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBySize()
+    {
+        DiskImageCache cache = new DiskImageCache(folder.getRoot(), 25);
+        cache.put("first", new byte[10]);
+        cache.put("second", new byte[10]);
+
+        //Reading the first marks it as recently used, leaving the second to be evicted, even though
+        //both files may share a modification time.
+        cache.get("first");
+        cache.put("third", new byte[10]);
+
+        assertArrayEquals(new byte[10], cache.get("first"));
+        assertNull(cache.get("second"));
+        assertArrayEquals(new byte[10], cache.get("third"));
+    }
+
+    @Test
+    public void ordersFilesFromEarlierProcessByModificationTime() throws Exception
+    {
+        DiskImageCache earlier = new DiskImageCache(folder.getRoot(), 25);
+        earlier.put("first", filled(1));
+        earlier.put("second", filled(2));
+        ageFile(2, 120000);
+        ageFile(1, 60000);
+
+        //A new cache has to rely on modification times, which make the second the oldest.
+        DiskImageCache cache = new DiskImageCache(folder.getRoot(), 25);
+        cache.put("third", filled(3));
+
+        assertNull(cache.get("second"));
+        assertArrayEquals(filled(1), cache.get("first"));
+        assertArrayEquals(filled(3), cache.get("third"));
+    }
+
+    @Test
+    public void doesNotStoreDataLargerThanCache()
+    {
+        DiskImageCache cache = new DiskImageCache(folder.getRoot(), 5);
+        cache.put("large", new byte[10]);
+
+        assertNull(cache.get("large"));
+    }
+
+    @Test
+    public void clearDeletesStoredData()
+    {
+        DiskImageCache cache = new DiskImageCache(folder.getRoot(), 100);
+        cache.put("first", new byte[10]);
+        cache.clear();
+
+        assertNull(cache.get("first"));
+    }
+
+    /**
+     * Creates image data of ten bytes of the same value.
+     * @param  value value of every byte
+     * @return       image data
+     */
+    private static byte[] filled(final int value)
+    {
+        byte[] data = new byte[10];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+
+    /**
+     * Moves the modification time of a stored file into the past. Files are found by their content,
+     * since their names are hashes of the URI.
+     * @param value   value of every byte of the file
+     * @param ageInMs how far into the past to move the file
+     */
+    private void ageFile(final int value, final long ageInMs) throws Exception
+    {
+        for (File file : folder.getRoot().listFiles())
+        {
+            FileInputStream input = new FileInputStream(file);
+            try
+            {
+                if (input.read() == value)
+                {
+                    file.setLastModified(System.currentTimeMillis() - ageInMs);
+                }
+            }
+            finally
+            {
+                input.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.amoeba.play.image;
+
+/**
+ * Decoded image produced by FakeImageDecoder.
+ */
+final class FakeImage
+{
+    final int width;
+    final int height;
+    int decodes;
+
+    /**
+     * Constructor.
+     * @param imageWidth  width in pixels
+     * @param imageHeight height in pixels
+     */
+    FakeImage(final int imageWidth, final int imageHeight)
+    {
+        width = imageWidth;
+        height = imageHeight;
+        decodes = 1;
+    }
+}
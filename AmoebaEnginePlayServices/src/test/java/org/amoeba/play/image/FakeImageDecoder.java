@@ -0,0 +1,62 @@
+package org.amoeba.play.image;
+
+/**
+ * Decoder for fake encoded images, whose data is just their width and height as two bytes each. Each
+ * pixel takes four bytes, as with ARGB_8888 bitmaps.
+ */
+final class FakeImageDecoder implements ImageDecoder<FakeImage>
+{
+    RuntimeException failure;
+
+    /**
+     * Encodes a fake image of the given size.
+     * @param  width  width in pixels
+     * @param  height height in pixels
+     * @return        encoded image data
+     */
+    static byte[] encode(final int width, final int height)
+    {
+        return new byte[] {(byte) (width >> 8), (byte) width, (byte) (height >> 8), (byte) height};
+    }
+
+    @Override
+    public ImageSize readSize(final byte[] data)
+    {
+        if (data.length != 4)
+        {
+            return null;
+        }
+        return new ImageSize(((data[0] & 0xFF) << 8) | (data[1] & 0xFF),
+                ((data[2] & 0xFF) << 8) | (data[3] & 0xFF));
+    }
+
+    @Override
+    public FakeImage decode(final byte[] data, final int sampleSize, final FakeImage reusable)
+    {
+        if (failure != null)
+        {
+            throw failure;
+        }
+
+        ImageSize size = readSize(data);
+        if (reusable != null)
+        {
+            reusable.decodes++;
+            return reusable;
+        }
+        return new FakeImage(size.getWidth() / sampleSize, size.getHeight() / sampleSize);
+    }
+
+    @Override
+    public boolean canReuse(final FakeImage candidate, final int width, final int height,
+            final int sampleSize)
+    {
+        return candidate.width == width / sampleSize && candidate.height == height / sampleSize;
+    }
+
+    @Override
+    public int getByteCount(final FakeImage image)
+    {
+        return image.width * image.height * 4;
+    }
+}
@@ -0,0 +1,39 @@
+package org.amoeba.play.image;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Image source serving fake images from memory, counting how often each URI is loaded.
+ */
+final class FakeImageSource implements ImageSource
+{
+    final Map<String, byte[]> images = new HashMap<String, byte[]>();
+    final Map<String, Integer> loads = new HashMap<String, Integer>();
+
+    @Override
+    public synchronized byte[] load(final String uri) throws IOException
+    {
+        Integer count = loads.get(uri);
+        loads.put(uri, count == null ? 1 : count + 1);
+
+        byte[] data = images.get(uri);
+        if (data == null)
+        {
+            throw new IOException("No image at " + uri);
+        }
+        return data;
+    }
+
+    /**
+     * Returns the number of times a URI was loaded.
+     * @param  uri URI of the image
+     * @return     number of loads
+     */
+    synchronized int getLoadCount(final String uri)
+    {
+        Integer count = loads.get(uri);
+        return count == null ? 0 : count;
+    }
+}
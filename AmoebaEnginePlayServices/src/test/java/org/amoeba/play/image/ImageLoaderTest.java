@@ -0,0 +1,314 @@
+package org.amoeba.play.image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for ImageLoader, using a fake image source and decoder and a work queue run by hand.
+ */
+public class ImageLoaderTest
+{
+    private static final String AVATAR = "content://avatars/1";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeImageSource source;
+    private FakeImageDecoder decoder;
+    private QueueExecutor work;
+    private Executor direct;
+
+    @Before
+    public void setUp()
+    {
+        source = new FakeImageSource();
+        source.images.put(AVATAR, FakeImageDecoder.encode(400, 200));
+        decoder = new FakeImageDecoder();
+        work = new QueueExecutor();
+        direct = new Executor()
+        {
+            @Override
+            public void execute(final Runnable command)
+            {
+                command.run();
+            }
+        };
+    }
+
+    @Test
+    public void sharesOneLoadBetweenConcurrentRequests()
+    {
+        ImageLoader<FakeImage> loader = createLoader(1000000, null);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        RecordingListener third = new RecordingListener();
+
+        loader.load(AVATAR, 100, 50, first);
+        loader.load(AVATAR, 100, 50, second);
+        loader.load(AVATAR, 100, 50, third);
+        assertEquals(1, work.size());
+
+        work.runAll();
+        assertEquals(1, source.getLoadCount(AVATAR));
+        assertNotNull(first.image);
+        assertSame(first.image, second.image);
+        assertSame(first.image, third.image);
+        assertEquals(1, first.calls);
+        assertEquals(1, second.calls);
+        assertEquals(1, third.calls);
+    }
+
+    @Test
+    public void loadsSeparatelyForDifferentSizes()
+    {
+        ImageLoader<FakeImage> loader = createLoader(1000000, null);
+        loader.load(AVATAR, 100, 50, new RecordingListener());
+        loader.load(AVATAR, 200, 100, new RecordingListener());
+        assertEquals(2, work.size());
+    }
+
+    @Test
+    public void downsamplesToRequestedSize()
+    {
+        ImageLoader<FakeImage> loader = createLoader(1000000, null);
+        RecordingListener listener = new RecordingListener();
+
+        loader.load(AVATAR, 100, 50, listener);
+        work.runAll();
+
+        assertEquals(100, listener.image.width);
+        assertEquals(50, listener.image.height);
+    }
+
+    @Test
+    public void callsBackFromMemoryCacheThroughCallbackExecutor()
+    {
+        QueueExecutor callbacks = new QueueExecutor();
+        ImageLoader<FakeImage> loader = new ImageLoader<FakeImage>(source, decoder,
+                new MemoryImageCache<FakeImage>(decoder, 1000000), null, work, callbacks);
+        RecordingListener first = new RecordingListener();
+        loader.load(AVATAR, 100, 50, first);
+        work.runAll();
+        callbacks.runAll();
+
+        //A cache hit must not call back on the calling thread, which may not be the callback thread.
+        RecordingListener second = new RecordingListener();
+        loader.load(AVATAR, 100, 50, second);
+        assertEquals(0, work.size());
+        assertEquals(0, second.calls);
+        assertEquals(1, callbacks.size());
+
+        callbacks.runAll();
+        assertEquals(1, second.calls);
+        assertSame(first.image, second.image);
+        assertSame(first.image, loader.getCached(AVATAR, 100, 50));
+    }
+
+    @Test
+    public void doesNotReloadImageCachedWhileRequestWasStarting()
+    {
+        //Once armed, finish the in-flight load between a request's unlocked cache check and its pending
+        //request check, as a background thread could.
+        final boolean[] race = {false};
+        MemoryImageCache<FakeImage> memory = new MemoryImageCache<FakeImage>(decoder, 1000000)
+        {
+            @Override
+            public synchronized FakeImage acquire(final String key)
+            {
+                if (!race[0])
+                {
+                    return super.acquire(key);
+                }
+
+                race[0] = false;
+                work.runAll();
+                return null;
+            }
+        };
+        ImageLoader<FakeImage> loader =
+                new ImageLoader<FakeImage>(source, decoder, memory, null, work, direct);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        loader.load(AVATAR, 100, 50, first);
+        race[0] = true;
+        loader.load(AVATAR, 100, 50, second);
+        work.runAll();
+
+        assertEquals(1, source.getLoadCount(AVATAR));
+        assertSame(first.image, second.image);
+    }
+
+    @Test
+    public void failsEveryWaitingListener()
+    {
+        ImageLoader<FakeImage> loader = createLoader(1000000, null);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        loader.load("content://missing", 100, 50, first);
+        loader.load("content://missing", 100, 50, second);
+        work.runAll();
+
+        assertNotNull(first.error);
+        assertSame(first.error, second.error);
+        assertNull(first.image);
+        assertEquals(1, first.calls);
+        assertEquals(1, second.calls);
+
+        //The failed load must not be joined by later requests.
+        loader.load("content://missing", 100, 50, new RecordingListener());
+        assertEquals(1, work.size());
+    }
+
+    @Test
+    public void failsEveryWaitingListenerWhenDecoderThrows()
+    {
+        decoder.failure = new IllegalStateException("corrupt");
+        ImageLoader<FakeImage> loader = createLoader(1000000, null);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        loader.load(AVATAR, 100, 50, first);
+        loader.load(AVATAR, 100, 50, second);
+        work.runAll();
+
+        assertTrue(first.error.getCause() instanceof IllegalStateException);
+        assertSame(first.error, second.error);
+
+        loader.load(AVATAR, 100, 50, new RecordingListener());
+        assertEquals(1, work.size());
+    }
+
+    @Test
+    public void readsFromDiskCacheBeforeSource()
+    {
+        DiskImageCache disk = new DiskImageCache(folder.getRoot(), 1000000);
+        createLoader(1000000, disk).load(AVATAR, 100, 50, new RecordingListener());
+        work.runAll();
+
+        //A new loader has an empty memory cache, so must go to disk.
+        RecordingListener listener = new RecordingListener();
+        createLoader(1000000, disk).load(AVATAR, 100, 50, listener);
+        work.runAll();
+
+        assertEquals(1, source.getLoadCount(AVATAR));
+        assertEquals(100, listener.image.width);
+    }
+
+    @Test
+    public void reusesEvictedImageOnlyOnceReleased()
+    {
+        source.images.put("content://avatars/2", FakeImageDecoder.encode(100, 50));
+        source.images.put("content://avatars/3", FakeImageDecoder.encode(100, 50));
+
+        //Room for exactly one 100x50 image.
+        ImageLoader<FakeImage> loader = createLoader(100 * 50 * 4, null);
+        RecordingListener first = new RecordingListener();
+        loader.load(AVATAR, 100, 50, first);
+        work.runAll();
+
+        //Evicts the first image, which is still held, so it must not be reused.
+        RecordingListener second = new RecordingListener();
+        loader.load("content://avatars/2", 100, 50, second);
+        work.runAll();
+        assertNotSame(first.image, second.image);
+
+        //Once released, the evicted first image is reused by the next decode.
+        loader.release(first.image);
+        RecordingListener third = new RecordingListener();
+        loader.load("content://avatars/3", 100, 50, third);
+        work.runAll();
+        assertSame(first.image, third.image);
+        assertEquals(2, third.image.decodes);
+    }
+
+    @Test
+    public void calculatesLargestSampleSizeCoveringRequest()
+    {
+        assertEquals(1, ImageLoader.calculateSampleSize(100, 100, 100, 100));
+        assertEquals(1, ImageLoader.calculateSampleSize(100, 100, 0, 0));
+        assertEquals(1, ImageLoader.calculateSampleSize(100, 100, 200, 200));
+        assertEquals(2, ImageLoader.calculateSampleSize(200, 200, 100, 100));
+        assertEquals(2, ImageLoader.calculateSampleSize(399, 399, 100, 100));
+        assertEquals(4, ImageLoader.calculateSampleSize(400, 400, 100, 100));
+        //Limited by the dimension closest to its requested size.
+        assertEquals(2, ImageLoader.calculateSampleSize(800, 200, 100, 100));
+    }
+
+    /**
+     * Creates a loader running work on the queue and callbacks directly.
+     * @param  memoryBytes size of the memory cache
+     * @param  disk        disk cache, or null
+     * @return             loader
+     */
+    private ImageLoader<FakeImage> createLoader(final int memoryBytes, final DiskImageCache disk)
+    {
+        return new ImageLoader<FakeImage>(source, decoder,
+                new MemoryImageCache<FakeImage>(decoder, memoryBytes), disk, work, direct);
+    }
+
+    /**
+     * Executor queueing work until it is run by the test.
+     */
+    private static class QueueExecutor implements Executor
+    {
+        private final LinkedList<Runnable> queue = new LinkedList<Runnable>();
+
+        @Override
+        public void execute(final Runnable command)
+        {
+            queue.add(command);
+        }
+
+        int size()
+        {
+            return queue.size();
+        }
+
+        void runAll()
+        {
+            while (!queue.isEmpty())
+            {
+                queue.removeFirst().run();
+            }
+        }
+    }
+
+    /**
+     * Listener recording its callbacks.
+     */
+    private static class RecordingListener implements ImageLoadListener<FakeImage>
+    {
+        int calls;
+        FakeImage image;
+        IOException error;
+
+        @Override
+        public void onImageLoaded(final String uri, final FakeImage loadedImage)
+        {
+            calls++;
+            image = loadedImage;
+        }
+
+        @Override
+        public void onImageLoadFailed(final String uri, final IOException loadError)
+        {
+            calls++;
+            error = loadError;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.amoeba.play.image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests for MemoryImageCache.
+ */
+public class MemoryImageCacheTest
+{
+    private static final int IMAGE_BYTES = 10 * 10 * 4;
+
+    private final FakeImageDecoder decoder = new FakeImageDecoder();
+
+    @Test
+    public void evictsLeastRecentlyUsedBySize()
+    {
+        MemoryImageCache<FakeImage> cache = new MemoryImageCache<FakeImage>(decoder, IMAGE_BYTES * 2);
+        FakeImage first = new FakeImage(10, 10);
+        FakeImage second = new FakeImage(10, 10);
+        cache.put("first", first, 0);
+        cache.put("second", second, 0);
+
+        //Using the first image makes the second the least recently used.
+        cache.release(cache.acquire("first"));
+        cache.put("third", new FakeImage(10, 10), 0);
+
+        assertSame(first, cache.acquire("first"));
+        assertNull(cache.acquire("second"));
+        assertEquals(IMAGE_BYTES * 2, cache.size());
+    }
+
+    @Test
+    public void evictsSeveralSmallImagesForOneLargeImage()
+    {
+        MemoryImageCache<FakeImage> cache = new MemoryImageCache<FakeImage>(decoder, IMAGE_BYTES * 4);
+        cache.put("a", new FakeImage(10, 10), 0);
+        cache.put("b", new FakeImage(10, 10), 0);
+        cache.put("c", new FakeImage(10, 10), 0);
+        cache.put("large", new FakeImage(20, 20), 0);
+
+        assertNull(cache.acquire("a"));
+        assertNull(cache.acquire("b"));
+        assertNull(cache.acquire("c"));
+        assertEquals(20 * 20 * 4, cache.size());
+    }
+
+    @Test
+    public void doesNotCacheImagesLargerThanCache()
+    {
+        MemoryImageCache<FakeImage> cache = new MemoryImageCache<FakeImage>(decoder, IMAGE_BYTES);
+        cache.put("large", new FakeImage(20, 20), 0);
+
+        assertNull(cache.acquire("large"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void poolsEvictedImageOnlyOnceEveryReferenceIsReleased()
+    {
+        MemoryImageCache<FakeImage> cache = new MemoryImageCache<FakeImage>(decoder, IMAGE_BYTES);
+        FakeImage held = new FakeImage(10, 10);
+        cache.put("held", held, 1);
+        cache.acquire("held");
+        cache.put("other", new FakeImage(10, 10), 0);
+
+        assertNull(cache.takeReusable(10, 10, 1));
+        cache.release(held);
+        assertNull(cache.takeReusable(10, 10, 1));
+        cache.release(held);
+        assertSame(held, cache.takeReusable(10, 10, 1));
+    }
+
+    @Test
+    public void poolsUnreferencedImageOnEviction()
+    {
+        MemoryImageCache<FakeImage> cache = new MemoryImageCache<FakeImage>(decoder, IMAGE_BYTES);
+        FakeImage unused = new FakeImage(10, 10);
+        cache.put("unused", unused, 0);
+        cache.put("other", new FakeImage(10, 10), 0);
+
+        assertNull(cache.takeReusable(20, 20, 1));
+        assertSame(unused, cache.takeReusable(10, 10, 1));
+        assertNull(cache.takeReusable(10, 10, 1));
+    }
+
+    @Test
+    public void clearDropsReusePool()
+    {
+        MemoryImageCache<FakeImage> cache = new MemoryImageCache<FakeImage>(decoder, IMAGE_BYTES);
+        FakeImage held = new FakeImage(10, 10);
+        cache.put("held", held, 1);
+        cache.clear();
+        cache.release(held);
+
+        assertEquals(0, cache.size());
+        assertNull(cache.takeReusable(10, 10, 1));
+    }
+}